@@ -29,6 +29,7 @@ import net.runelite.client.config.Config;
 import net.runelite.client.config.ConfigGroup;
 import net.runelite.client.config.ConfigItem;
 import net.runelite.client.config.ConfigSection;
+import net.runelite.client.config.Range;
 
 @ConfigGroup("pokescape")
 public interface PokescapeConfig extends Config {
@@ -41,6 +42,13 @@ public interface PokescapeConfig extends Config {
 		public String toString() { return stringValue; }
 	}
 
+	enum ScreenshotFormat {
+		JPEG("JPEG (Smaller)"), PNG("PNG (Lossless)");
+		private final String stringValue;
+		ScreenshotFormat(final String s) { stringValue = s; }
+		public String toString() { return stringValue; }
+	}
+
 	@ConfigItem(
 			position = 1,
 			keyName = "panel_visibility",
@@ -122,4 +130,43 @@ public interface PokescapeConfig extends Config {
 	)
 	default Color timestampColor() { return Color.WHITE; }
 
+	@ConfigSection(
+			name = "Screenshots",
+			description = "Screenshot upload configuration.",
+			position = 9,
+			closedByDefault = true
+	)
+	String screenshotSection = "Screenshot section";
+
+	@ConfigItem(
+			position = 10,
+			keyName = "screenshot_format",
+			name = "Format",
+			description = "Image format of loot screenshots. JPEG is only used if the server accepts it.",
+			section = screenshotSection
+	)
+	default ScreenshotFormat screenshotFormat() { return ScreenshotFormat.JPEG; }
+
+	@Range(
+			min = 50,
+			max = 100
+	)
+	@ConfigItem(
+			position = 11,
+			keyName = "screenshot_quality",
+			name = "JPEG Quality",
+			description = "Higher quality keeps text sharper but makes uploads larger.",
+			section = screenshotSection
+	)
+	default int screenshotQuality() { return 90; }
+
+	@ConfigItem(
+			position = 12,
+			keyName = "screenshot_subsampling",
+			name = "Chroma Subsampling",
+			description = "Stores color at half resolution for smaller JPEGs. May blur colored chat text.",
+			section = screenshotSection
+	)
+	default boolean screenshotSubsampling() { return false; }
+
 }
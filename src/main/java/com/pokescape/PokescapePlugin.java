@@ -24,17 +24,27 @@
  */
 package com.pokescape;
 
-import com.google.gson.JsonElement;
 import com.pokescape.ui.PokescapeOverlay;
 import com.pokescape.ui.PokescapePanel;
 import com.pokescape.web.PokescapeClient;
+import com.pokescape.web.submissionOutbox;
+import com.pokescape.web.submissionBatcher;
+import com.pokescape.web.sseSupervisor;
+import com.pokescape.web.screenshotPipeline;
 import com.pokescape.util.Utils;
 import com.pokescape.util.eventObject;
+import com.pokescape.util.eventSpec;
+import com.pokescape.util.pendingEvent;
+import com.pokescape.util.pendingEventQueue;
+import com.pokescape.util.eventIndex;
+import com.pokescape.util.activityIndex;
+import com.pokescape.util.allowBlockIndex;
+import com.pokescape.util.messageBuffer;
 import com.pokescape.util.PokeScapeGoals;
 import com.pokescape.ui.Icon;
-import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import com.google.inject.Provides;
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
 import java.util.List;
 import java.util.ArrayList;
@@ -84,6 +94,10 @@ public class PokescapePlugin extends Plugin {
 	private @Inject ClientToolbar clientToolbar;
 	private @Inject PokescapeConfig config;
 	private @Inject PokescapeClient sendRequest;
+	private @Inject submissionOutbox outbox;
+	private @Inject submissionBatcher batcher;
+	private @Inject sseSupervisor sse;
+	private @Inject screenshotPipeline screenshots;
 	private @Inject Utils utils;
 	private @Inject OverlayManager overlayManager;
 	private @Inject ChatMessageManager chatMessageManager;
@@ -95,24 +109,24 @@ public class PokescapePlugin extends Plugin {
 	private static GameState currentGameState;
 
 	private static final String POKESCAPE_TITLE = "PokeScape PvM";
+	private static final int MAX_PENDING_EVENTS = 32;
 
-	private JsonObject gameEvents;
+	private eventIndex gameEvents;
 	private JsonObject gameActivities;
-	private JsonObject allowBlockList;
-	private String eventName;
-	private String eventType;
-	private JsonArray eventParameters;
-	private int eventWidget;
+	private activityIndex gameActivityIndex;
+	private allowBlockIndex allowBlockList;
 	private final JsonObject containerEvents = new JsonObject();
 	private JsonObject recentActivities = new JsonObject();
-	private final List<String> messageCollector = new ArrayList<>();
+	private final messageBuffer messageCollector = new messageBuffer();
+	private int messageTick;
 	private boolean fetchProfile;
-	private boolean fetchGameEvent;
-	private int delayedGameEventTick;
+	private final pendingEventQueue pendingEvents = new pendingEventQueue(MAX_PENDING_EVENTS);
 	private int delayedMsgCleanupTick;
 	private int delayedSubmitTick;
 	private int delayDupeWidget;
 	private final ArrayList<Object> lootObject = new ArrayList <>();
+	private int lootMessageWindow;
+	private volatile boolean playerStatePending;
 
 	@Override
 	protected void startUp() {
@@ -121,11 +135,22 @@ public class PokescapePlugin extends Plugin {
 		initPanel();
 		overlayManager.add(overlay);
 		if (config.showPokescapeSidePanel()) clientToolbar.addNavigation(navButton);
+		outbox.startUp();
+		batcher.startUp();
+		sse.startUp();
+		screenshots.startUp();
+		// Match events with the last session's sync bundle until the server sync completes
+		sendRequest.loadSyncCache();
+		// Resend any submissions that were left unacknowledged by the last session
+		sendRequest.replayOutbox();
 	}
 
 	@Override
 	protected void shutDown() {
-		sendRequest.shutdownSSE();
+		screenshots.shutDown();
+		sse.shutDown();
+		batcher.shutDown();
+		outbox.shutDown();
 		goals.shutDown();
 		overlayManager.remove(overlay);
 		clientToolbar.removeNavigation(navButton);
@@ -134,39 +159,44 @@ public class PokescapePlugin extends Plugin {
 		overlay = null;
 	}
 
-	public void setGameEvents(JsonObject events) { gameEvents = events; setContainerEvents(events); }
-	public void setAllowBlockList(JsonObject allowblock) {
+	public void setGameEvents(eventIndex events) { gameEvents = events; setContainerEvents(events.getContainerEvents()); }
+	public void setAllowBlockList(allowBlockIndex allowblock) {
 		allowBlockList = allowblock;
 	}
-	public void setGameActivities(JsonObject activities) { gameActivities = activities; goals.setPlayerState(); }
+	public void setGameActivities(JsonObject activities) {
+		gameActivities = activities;
+		gameActivityIndex = activityIndex.compile(activities);
+		gameActivityIndex.seedCategories(recentActivities);
+		// The player state reads the local player, so activities loaded from the cache before login wait for the first tick
+		if (client.getGameState() == GameState.LOGGED_IN) goals.setPlayerState();
+		else playerStatePending = true;
+	}
 	public JsonObject getGameActivities() {
 		return gameActivities;
 	}
+	public activityIndex getGameActivityIndex() {
+		return gameActivityIndex;
+	}
 	public JsonObject getPlayerState() {
 		return recentActivities;
 	}
 	public void setPlayerState(JsonObject playerState) { recentActivities = playerState; }
 	public List<String> getMessageCollector() {
-		return messageCollector;
+		return messageCollector.snapshot();
+	}
+	// Where the overlay was last drawn on the canvas, null if it isn't shown
+	public Rectangle getOverlayBounds() {
+		if (overlay == null || !config.overlayVisibility()) return null;
+		return new Rectangle(overlay.getBounds());
 	}
 	public void setDelayDupeWidget(int value) { delayDupeWidget = value; }
 
 	public JsonObject getContainerEvents() {
 		return containerEvents;
 	}
+	// The index collects the containerUpdate events as {items, param} while it compiles
 	public void setContainerEvents(JsonObject events) {
-		events.keySet().forEach(keyName -> {
-			JsonObject keyObj = events.get(keyName).getAsJsonObject();
-			String filterKeyValue = keyObj.get("type").getAsString();
-			if (filterKeyValue.equals("containerUpdate")) {
-				JsonArray itemIDs = (keyObj.has("items") && !keyObj.get("items").isJsonNull()) ? keyObj.get("items").getAsJsonArray() : new JsonArray();
-				JsonArray eventParameters = (keyObj.has("param") && !keyObj.get("param").isJsonNull()) ? keyObj.get("param").getAsJsonArray() : new JsonArray();
-				JsonObject eventObject = new JsonObject();
-				eventObject.add("items", itemIDs);
-				eventObject.add("param", eventParameters);
-				containerEvents.add(keyName, eventObject);
-			}
-		});
+		events.entrySet().forEach(event -> containerEvents.add(event.getKey(), event.getValue()));
 	}
 
 	private void initPanel() {
@@ -210,16 +240,22 @@ public class PokescapePlugin extends Plugin {
 
 	@Subscribe
 	public void onGameTick(GameTick tick) {
+		if (playerStatePending) {
+			playerStatePending = false;
+			goals.setPlayerState();
+		}
 		// Send a profile request on login/hop
 		if (fetchProfile) {
 			sendRequest.profile(panel, goals);
 			fetchProfile = !fetchProfile;
 		}
-		// Process events when a matching event is found
-		if (fetchGameEvent && --delayedGameEventTick < 0) {
+		// Process matched events once their delay has elapsed
+		if (!pendingEvents.isEmpty()) {
 			int spriteID = fetchWidgetSprite();
-			utils.processEvent(eventName, eventType, eventParameters, eventWidget, messageCollector, recentActivities, spriteID);
-			fetchGameEvent = !fetchGameEvent;
+			for (pendingEvent queued : pendingEvents.tick()) {
+				eventObject event = queued.getEvent();
+				utils.processEvent(event.getEventName(), event.getEventType(), event.getEventSpec(), queued.getEventWidget(), messageCollector.snapshot(queued.getMessageWindow()), recentActivities, spriteID);
+			}
 		}
 
 		if (client.getVarcIntValue(VarClientInt.INVENTORY_TAB) != overlay.getCollapsedTabsState()) {
@@ -229,20 +265,25 @@ public class PokescapePlugin extends Plugin {
 
 		// Handles submitting loot set with a delayed submission
 		if (!lootObject.isEmpty() && --delayedSubmitTick < 0) {
-			sendRequest.loot((String) lootObject.get(0), (String) lootObject.get(1), (Integer) lootObject.get(2), (Collection<ItemStack>) lootObject.get(3), messageCollector, recentActivities);
+			sendRequest.loot((String) lootObject.get(0), (String) lootObject.get(1), (Integer) lootObject.get(2), (Collection<ItemStack>) lootObject.get(3), messageCollector.snapshot(lootMessageWindow), recentActivities);
 			lootObject.clear();
 		}
 
-		// Clears the message collector at the end of every tick
+		// Expires the message collector window at the end of every tick
 		// delayedLootTick can be set to a postive value to log messages for a longer period
+		++messageTick;
 		if (--delayedMsgCleanupTick < 0) {
-			messageCollector.clear();
+			messageCollector.expireBefore(messageTick);
 		}
 
 		// Filters out duplicate widget events when positive
 		--delayDupeWidget;
 	}
 
+	private void queueEvent(eventObject event, int eventWidget) {
+		pendingEvents.add(event, eventWidget, messageCollector.getWindowStart());
+	}
+
 	private int fetchWidgetSprite() {
 		Widget sprite = client.getWidget(ComponentID.DIALOG_SPRITE_SPRITE);
 		if (sprite != null) return sprite.getItemId();
@@ -276,7 +317,7 @@ public class PokescapePlugin extends Plugin {
 		// Matches menu actions to a key-value list to determine the player's most recently performed activities
 		String lastMenuOption = Text.removeTags(event.getMenuOption());
 		String lastMenuTarget = Text.removeTags(event.getMenuTarget());
-		if (gameActivities != null) recentActivities = utils.matchActivity(recentActivities, gameActivities, lastMenuOption, lastMenuTarget, -1);
+		if (gameActivityIndex != null) recentActivities = utils.matchActivity(recentActivities, gameActivityIndex, lastMenuOption, lastMenuTarget);
 	}
 
 	@Subscribe
@@ -291,43 +332,22 @@ public class PokescapePlugin extends Plugin {
 
 		// Log game messages to the message collector
 		final String chatMessage = Text.removeTags(event.getMessage());
-		messageCollector.add(chatMessage);
+		messageCollector.add(messageTick, chatMessage);
 
 		// Find game event messages
-		if (gameEvents != null && !fetchGameEvent) {
-			List<eventObject> eventMatch = utils.matchEvent(gameEvents, chatMessage, "gameEvent", "type", "gameMessage");
-			if (!eventMatch.isEmpty()) {
-				for (eventObject item : eventMatch) {
-					eventName = item.getEventName();
-					eventType = item.getEventType();
-					eventParameters = item.getEventParameters();
-				}
-				fetchGameEvent = true;
-
+		if (gameEvents != null) {
+			List<eventObject> eventMatch = utils.matchEvent(gameEvents, chatMessage, eventIndex.GAME_MESSAGE);
+			for (eventObject item : eventMatch) {
+				eventSpec eventSpec = item.getEventSpec();
 				// Events with parameters that manipulate timing need to be processed immediately
-				for (JsonElement param : eventParameters) {
-					String eventParam = param.getAsString();
-					// delaySubmission parameter temporarily prevents loot from being submitted
-					// Some bosses (Nex) may take multiple ticks to completely log all their game messages
-					if (eventParam.startsWith("delaySubmission")) {
-						try { delayedSubmitTick = Integer.parseInt(eventParam.split("delaySubmission=")[1]); }
-						catch (Exception e) { delayedSubmitTick = 2; }
-					}
-					// delayMsgCleanup parameter temporarily prevents the message collector from being cleared
-					// Some bosses (Nightmare, Duke) fire onLootReceived on a future game tick
-					if (eventParam.startsWith("delayMsgCleanup")) {
-						try { delayedMsgCleanupTick = Integer.parseInt(eventParam.split("delayMsgCleanup=")[1]); }
-						catch (Exception e) { delayedMsgCleanupTick = 2; }
-					}
-					// delayFetch parameter temporarily prevents an event from being processed
-					// This is useful if waiting for other events unrelated to this event
-					if (eventParam.startsWith("delayFetch")) {
-						try { delayedGameEventTick = Integer.parseInt(eventParam.split("delayFetch=")[1]); }
-						catch (Exception e) { delayedGameEventTick = 2; }
-					}
-					// suppressFetch parameters blocks an event from being sent back to the server
-					if (eventParam.startsWith("suppressFetch")) fetchGameEvent = false;
-				}
+				// delaySubmission parameter temporarily prevents loot from being submitted
+				// Some bosses (Nex) may take multiple ticks to completely log all their game messages
+				if (eventSpec.getDelaySubmission() != null) delayedSubmitTick = eventSpec.getDelaySubmission();
+				// delayMsgCleanup parameter temporarily prevents the message collector from being cleared
+				// Some bosses (Nightmare, Duke) fire onLootReceived on a future game tick
+				if (eventSpec.getDelayMsgCleanup() != null) delayedMsgCleanupTick = eventSpec.getDelayMsgCleanup();
+				// suppressFetch parameters blocks an event from being sent back to the server
+				if (!eventSpec.isSuppressFetch()) queueEvent(item, -1);
 			}
 		}
 
@@ -338,15 +358,10 @@ public class PokescapePlugin extends Plugin {
 	@Subscribe
 	public void onOverheadTextChanged(OverheadTextChanged event) {
 		// Find overhead event messages
-		if (gameEvents != null && !fetchGameEvent) {
-			List<eventObject> eventMatch = utils.matchEvent(gameEvents, event.getOverheadText(), "gameEvent", "type", "overHeadText");
-			if (!eventMatch.isEmpty()) {
-				for (eventObject item : eventMatch) {
-					eventName = item.getEventName();
-					eventType = item.getEventType();
-					eventParameters = item.getEventParameters();
-				}
-				utils.matchOverhead(event, eventName, eventType, eventParameters, recentActivities);
+		if (gameEvents != null) {
+			List<eventObject> eventMatch = utils.matchEvent(gameEvents, event.getOverheadText(), eventIndex.OVERHEAD_TEXT);
+			for (eventObject item : eventMatch) {
+				utils.matchOverhead(event, item.getEventName(), item.getEventType(), item.getEventSpec(), recentActivities);
 			}
 		}
 	}
@@ -354,26 +369,17 @@ public class PokescapePlugin extends Plugin {
 	@Subscribe
 	public void onWidgetLoaded(WidgetLoaded event) {
 		// Find widget events
-		if (gameEvents != null && !fetchGameEvent && delayDupeWidget <= 0) {
-			List<eventObject> eventMatch = utils.matchEvent(gameEvents, Integer.toString(event.getGroupId()), "gameEvent", "type", "loadedWidget");
-			if (!eventMatch.isEmpty()) {
-				for (eventObject item : eventMatch) {
-					eventName = item.getEventName();
-					eventType = item.getEventType();
-					eventParameters = item.getEventParameters();
-					eventWidget = event.getGroupId();
-				}
-				fetchGameEvent = true;
+		if (gameEvents != null && delayDupeWidget <= 0) {
+			List<eventObject> eventMatch = utils.matchWidgetEvent(gameEvents, event.getGroupId());
+			for (eventObject item : eventMatch) {
+				eventSpec eventSpec = item.getEventSpec();
 				// Events with parameters that manipulate timing need to be processed immediately
-				for (JsonElement param : eventParameters) {
-					String eventParam = param.getAsString();
-					// Used if the widget will be overwritten/unavailable the next tick
-					if (eventParam.startsWith("processSameTick")) {
-						utils.processEvent(eventName, eventType, eventParameters, eventWidget, messageCollector, recentActivities, -1);
-					}
-					// suppressFetch parameters blocks events from being sent back to the server
-					if (eventParam.startsWith("suppressFetch")) fetchGameEvent = false;
+				// Used if the widget will be overwritten/unavailable the next tick
+				if (eventSpec.isProcessSameTick()) {
+					utils.processEvent(item.getEventName(), item.getEventType(), eventSpec, event.getGroupId(), messageCollector.snapshot(), recentActivities, -1);
 				}
+				// suppressFetch parameters blocks events from being sent back to the server
+				if (!eventSpec.isSuppressFetch()) queueEvent(item, event.getGroupId());
 			}
 		}
 	}
@@ -389,12 +395,13 @@ public class PokescapePlugin extends Plugin {
 		// If the submission needs to be delayed, hold a reference that can be submitted later
 		Collection<ItemStack> items = npcLootReceived.getItems();
 		if (delayedSubmitTick > 0) {
+			if (lootObject.isEmpty()) lootMessageWindow = messageCollector.getWindowStart();
 			lootObject.add("npcLoot");
 			lootObject.add(npc.getName());
 			lootObject.add(npc.getId());
 			lootObject.add(items);
 		} else {
-			sendRequest.loot("npcLoot", npc.getName(), npc.getId(), items, messageCollector, recentActivities);
+			sendRequest.loot("npcLoot", npc.getName(), npc.getId(), items, messageCollector.snapshot(), recentActivities);
 		}
 	}
 
@@ -410,12 +417,13 @@ public class PokescapePlugin extends Plugin {
 		// If the submission needs to be delayed, hold a reference that can be submitted later
 		Collection<ItemStack> items = lootReceived.getItems();
 		if (delayedSubmitTick > 0) {
+			if (lootObject.isEmpty()) lootMessageWindow = messageCollector.getWindowStart();
 			lootObject.add("otherLoot");
 			lootObject.add(lootReceived.getName());
 			lootObject.add(0);
 			lootObject.add(items);
 		} else {
-			sendRequest.loot("otherLoot", lootReceived.getName(), 0, items, messageCollector, recentActivities);
+			sendRequest.loot("otherLoot", lootReceived.getName(), 0, items, messageCollector.snapshot(), recentActivities);
 		}
 	}
 
@@ -72,6 +72,8 @@ public class PokescapePanel extends PluginPanel {
     private JPanel serverInfoPanel;
     private JLabel versionLabel;
     private JLabel serverStatusLabel;
+    private int serverStatus;
+    private int liveUpdatesStatus;
     private JTextArea serverMessage;
     private JLabel pokescapeTeamLabel;
     private JLabel totalLevelLabel;
@@ -299,6 +301,7 @@ public class PokescapePanel extends PluginPanel {
     }
 
     public void setServerStatusText(int status) {
+        serverStatus = status;
         String statusColor = "#FF0000";
         String statusText = "Unreachable";
         switch (status) {
@@ -323,7 +326,33 @@ public class PokescapePanel extends PluginPanel {
                 statusText = "Closed";
                 break;
         }
-        serverStatusLabel.setText("<html><nobr>Server Status: <font color='"+statusColor+"'>"+statusText+"</font></nobr></html>");
+        String liveColor = "#7F7F7F";
+        String liveText = "Disconnected";
+        switch (liveUpdatesStatus) {
+            // Open
+            case 1:
+                liveColor = "#00FF00";
+                liveText = "Connected";
+                break;
+            // Connecting
+            case 2:
+                liveColor = "#FFAA00";
+                liveText = "Connecting";
+                break;
+            // Waiting to reconnect
+            case 3:
+                liveColor = "#FFAA00";
+                liveText = "Reconnecting";
+                break;
+        }
+        serverStatusLabel.setText("<html><nobr>Server Status: <font color='"+statusColor+"'>"+statusText+"</font> <font color='"+liveColor+"'>●</font></nobr></html>");
+        serverStatusLabel.setToolTipText("Live updates: "+liveText);
+    }
+
+    // Shows the state of the live update (SSE) connection next to the server status
+    public void setLiveUpdatesStatus(int status) {
+        liveUpdatesStatus = status;
+        if (serverStatusLabel != null) setServerStatusText(serverStatus);
     }
 
     public void setPokescapeTeam(String team, String color) {
@@ -357,7 +357,8 @@ public class PokeScapeGoals {
             playerState = plugin.getPlayerState();
             gameActivities = plugin.getGameActivities();
             // Record changes to tracked animations to the playerstate
-            playerState = utils.matchActivity(playerState, gameActivities, "", "", lastPlayerAnim);
+            activityIndex gameActivityIndex = plugin.getGameActivityIndex();
+            if (gameActivityIndex != null) playerState = utils.matchAnimation(playerState, gameActivityIndex, lastPlayerAnim);
             if (playerState.has("lastPlayerAnim")) playerState.addProperty("lastPlayerAnim", lastPlayerAnim);
             if (attackFilter.contains(lastPlayerAnim)) {
                 if (playerState.has("lastAttackAnim")) playerState.addProperty("lastAttackAnim", lastPlayerAnim);
@@ -978,7 +979,7 @@ public class PokeScapeGoals {
         }
         String goalName = (goal.has("goalName")) ? goal.get("goalName").getAsString() : "";
         String eventType = (goal.has("eventType")) ? goal.get("eventType").getAsString() : "";
-        utils.processEvent(goalName, eventType, eventParameters, eventWidget, messageCollector, playerState, -1);
+        utils.processEvent(goalName, eventType, eventSpec.parse(eventParameters), eventWidget, messageCollector, playerState, -1);
     }
 
     private boolean checkpointsPresent(JsonObject goal, JsonObject conditionParams) {
@@ -41,7 +41,10 @@ import net.runelite.api.ItemContainer;
 import net.runelite.api.InventoryID;
 import net.runelite.api.events.ChatMessage;
 import net.runelite.api.events.OverheadTextChanged;
+import net.runelite.api.widgets.ComponentID;
+import net.runelite.api.widgets.InterfaceID;
 import net.runelite.api.widgets.Widget;
+import net.runelite.api.widgets.WidgetUtil;
 import net.runelite.client.callback.ClientThread;
 import net.runelite.client.chat.ChatMessageBuilder;
 import net.runelite.client.chat.ChatMessageManager;
@@ -58,6 +61,7 @@ import java.util.stream.Stream;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.awt.Color;
+import java.awt.Rectangle;
 import javax.inject.Inject;
 import lombok.extern.slf4j.Slf4j;
 
@@ -79,113 +83,55 @@ public class Utils {
     private static final int TOB_RAIDERS_VARC = 330;
     private static final int TOA_RAIDERS_VARC = 1099;
 
-    public List<eventObject> matchEvent(JsonObject object, String event, String eventType, String filterKey, String filterValue) {
-        List<eventObject> matchedEvent = new ArrayList<>();
-        object.keySet().forEach(keyName -> {
-            JsonObject keyObj = object.get(keyName).getAsJsonObject();
-            String filterKeyValue = keyObj.get(filterKey).getAsString();
-            String eventKey = (keyObj.has("event") && !keyObj.get("event").isJsonNull()) ? keyObj.get("event").getAsString() : null;
-            if (eventKey != null && (event.startsWith(eventKey) || event.matches(eventKey)) && filterKeyValue.equals(filterValue)) {
-                JsonArray eventParameters = new JsonArray();
-                if (keyObj.has("param")) eventParameters = keyObj.get("param").getAsJsonArray();
-                matchedEvent.add(new eventObject(keyName, eventType, eventParameters));
-            }
-        });
-        return matchedEvent;
+    public List<eventObject> matchEvent(eventIndex index, String event, String filterValue) {
+        return index.match(filterValue, event);
     }
 
-    public JsonObject matchActivity(JsonObject recentActivities, JsonObject object, String menuAction, String menuTarget, int animAction) {
-        object.keySet().forEach(keyName -> {
-            String keyCategory = object.get(keyName).getAsJsonObject().get("category").getAsString();
-            if (!recentActivities.has(keyCategory)) recentActivities.add(keyCategory, null);
-        });
-        object.keySet().forEach(keyName -> {
-            JsonObject keyActivity = object.get(keyName).getAsJsonObject();
-            String keyCategory = object.get(keyName).getAsJsonObject().get("category").getAsString();
-            boolean setToTarget = keyActivity.has("setToTarget") && !keyActivity.get("setToTarget").isJsonNull();
-            JsonArray clearCategories = (keyActivity.has("clearCategories") && !keyActivity.get("clearCategories").isJsonNull()) ? keyActivity.get("clearCategories").getAsJsonArray() : null;
-            JsonArray actionFilters = (keyActivity.has("menuActions") && !keyActivity.get("menuActions").isJsonNull()) ? keyActivity.get("menuActions").getAsJsonArray() : null;
-            JsonArray targetFilters = (keyActivity.has("menuTargets") && !keyActivity.get("menuTargets").isJsonNull()) ? keyActivity.get("menuTargets").getAsJsonArray() : null;
-            boolean actionMatch, targetMatch;
-            if (actionFilters != null && targetFilters != null) {
-                for (int i = 0; i < actionFilters.size(); i++) {
-                    actionMatch = (menuAction.matches(actionFilters.get(i).getAsString()));
-                    targetMatch = (menuTarget.matches(targetFilters.get(i).getAsString()));
-                    if (actionMatch && targetMatch) {
-                        if (clearCategories != null) for (JsonElement category : clearCategories)
-                            recentActivities.add(category.toString().replaceAll("\"", ""), null);
-                        if (setToTarget) recentActivities.addProperty(keyCategory, menuTarget);
-                        else recentActivities.addProperty(keyCategory, keyName);
-                    }
-                }
-            }
-            if (animAction > -1) {
-                JsonArray animFilters = (keyActivity.has("animActions") && !keyActivity.get("animActions").isJsonNull()) ? keyActivity.get("animActions").getAsJsonArray() : null;
-                if (animFilters != null) {
-                    for (int i = 0; i < animFilters.size(); i++) {
-                        boolean animMatch = (animAction == animFilters.get(i).getAsInt());
-                        if (animMatch) {
-                            if (clearCategories != null) for (JsonElement category : clearCategories)
-                                recentActivities.add(category.toString().replaceAll("\"", ""), null);
-                            recentActivities.addProperty(keyCategory, keyName);
-                        }
-                    }
-                }
-            }
-        });
+    public List<eventObject> matchWidgetEvent(eventIndex index, int groupId) {
+        return index.matchWidget(groupId);
+    }
+
+    public JsonObject matchActivity(JsonObject recentActivities, activityIndex index, String menuAction, String menuTarget) {
+        index.applyMenuAction(recentActivities, menuAction, menuTarget);
+        return recentActivities;
+    }
+
+    public JsonObject matchAnimation(JsonObject recentActivities, activityIndex index, int animAction) {
+        if (animAction > -1) index.applyAnimation(recentActivities, animAction);
         return recentActivities;
     }
 
-    public Boolean processAllowBlock(JsonObject allowBlockList, String lootName, String lootType) {
+    public Boolean processAllowBlock(allowBlockIndex allowBlockList, String lootName, String lootType) {
         // Return null if the list cannot be found
         if (allowBlockList == null) return null;
-        final Boolean[] matchAction = { null };
-        allowBlockList.keySet().forEach(keyName -> {
-            // Parse the values of each entry in the allowblock list
-            String name = "", type = "", action = "";
-            JsonObject listEntry = (allowBlockList.has(keyName)) ? allowBlockList.get(keyName).getAsJsonObject() : new JsonObject();
-            if (listEntry.has("name") && !listEntry.get("name").isJsonNull())
-                name = listEntry.get("name").getAsString();
-            if (listEntry.has("type") && !listEntry.get("type").isJsonNull())
-                type = listEntry.get("type").getAsString();
-            if (listEntry.has("action") && !listEntry.get("action").isJsonNull())
-                action = listEntry.get("action").getAsString();
-            // If a matching entry is found, return true or false depending on whether the action is allow or block
-            boolean nameMatch = lootName.matches(name), typeMatch = lootType.matches(type);
-            if (nameMatch && typeMatch) {
-                if (action.equals("allow")) matchAction[0] = true;
-                if (action.equals("block")) matchAction[0] = false;
-            }
-        });
-        // Returns true or false if matches were found. Return null otherwise
-        return matchAction[0];
+        // Returns true or false depending on whether the last matching entry is allow or block. Return null otherwise
+        return allowBlockList.verdict(lootName, lootType);
     }
 
-    public void processEvent(String eventName, String eventType, JsonArray eventParameters, int eventWidget, List<String> messageCollector, JsonObject recentActivities, Integer spriteID) {
+    public void processEvent(String eventName, String eventType, eventSpec eventSpec, int eventWidget, List<String> messageCollector, JsonObject recentActivities, Integer spriteID) {
         JsonObject eventInfo = new JsonObject();
         boolean suppressRequest = false;
-        for (JsonElement param : eventParameters) {
-            String eventParam = param.getAsString();
-            switch(eventParam) {
-                case "widgetInfo":
-                    eventInfo.add("widgetInfo", getWidgetInfo(eventWidget, eventParameters));
+        for (eventSpec.InfoRequest request : eventSpec.getInfoRequests()) {
+            switch(request) {
+                case WIDGET_INFO:
+                    eventInfo.add("widgetInfo", getWidgetInfo(eventWidget, eventSpec));
                     break;
-                case "suppressRequest":
+                case SUPPRESS_REQUEST:
                     suppressRequest = true;
                     break;
-                case "suppressNullWidget":
+                case SUPPRESS_NULL_WIDGET:
                     if (eventInfo.has("widgetInfo") && eventInfo.get("widgetInfo").isJsonNull()) suppressRequest = true;
                     break;
-                case "raidInfo":
+                case RAID_INFO:
                     eventInfo.add("raidInfo", getRaidInfo());
                     break;
-                case "visiblePlayers":
+                case VISIBLE_PLAYERS:
                     eventInfo.add("visiblePlayers", getVisiblePlayers());
                     break;
-                case "playerLocation":
+                case PLAYER_LOCATION:
                     eventInfo.add("playerLocation", getPlayerLocation());
                     break;
-                case "playerItems":
+                case PLAYER_ITEMS:
                     eventInfo.add("playerItems", getPlayerItems());
                     break;
                 default:
@@ -227,26 +173,23 @@ public class Utils {
         }
     }
 
-    public void matchOverhead(OverheadTextChanged event, String eventName, String eventType, JsonArray eventParameters, JsonObject recentActivities) {
+    public void matchOverhead(OverheadTextChanged event, String eventName, String eventType, eventSpec eventSpec, JsonObject recentActivities) {
         List<String> messageCollector = new ArrayList<>();
         Actor overheadActor = event.getActor();
         Actor followerActor = client.getFollower();
         Actor playerActor = client.getLocalPlayer();
         String overheadActorName = event.getActor().getName();
-        String matchOp = eventParameters.get(0).getAsString();
-        String actorName = (matchOp.startsWith("Actor=")) ? matchOp.substring(matchOp.indexOf("=")+1) : "";
-        if (matchOp.startsWith("Actor=")) matchOp = "matchName";
-        switch(matchOp) {
-            case "matchFollower":
+        switch(eventSpec.getOverheadMatch()) {
+            case FOLLOWER:
                 if (overheadActor == followerActor)
                     sendRequest.gameEvent(eventName, eventType, messageCollector, null, recentActivities, -1);
                 break;
-            case "matchSelf":
+            case SELF:
                 if (overheadActor == playerActor)
                     sendRequest.gameEvent(eventName, eventType, messageCollector, null, recentActivities, -1);
                 break;
-            case "matchName":
-                if (Objects.equals(overheadActorName, actorName))
+            case NAME:
+                if (Objects.equals(overheadActorName, eventSpec.getOverheadActorName()))
                     sendRequest.gameEvent(eventName, eventType, messageCollector, null, recentActivities, -1);
                 break;
             default:
@@ -254,15 +197,13 @@ public class Utils {
         }
     }
 
-    private JsonObject getWidgetInfo(int targetWidgetID, JsonArray eventParameters) {
+    private JsonObject getWidgetInfo(int targetWidgetID, eventSpec eventSpec) {
         JsonObject widgetInfo = new JsonObject();
         // Go up one level and get the parent of the initial target
         int rootWidgetID = -1;
         for (int i = 0; i < 12; i++) {
-            try {
-                rootWidgetID = client.getWidget(targetWidgetID, i).getParentId();
-            } catch (Exception e) {
-            }
+            Widget target = client.getWidget(targetWidgetID, i);
+            if (target != null) rootWidgetID = target.getParentId();
             if (rootWidgetID != -1) break;
         }
         // Processes all the childen of the root widget to generate a json object of all available text and sprites
@@ -270,35 +211,11 @@ public class Utils {
 
         // If filters are included with the event, apply them to the generated json object
         // This reduces the size of the request payload and restructures the widget data to have meaningful key-value pairs
-        List<String> filterKeys = new ArrayList<>();
-        List<String> renameKeys = new ArrayList<>();
-        List<String> filterEVKeys = new ArrayList<>();
-        String bitArrayKey = null;
-        String playerStateKey = null;
-        int delayDupeWidget = 0;
-        for (JsonElement param : eventParameters) {
-            String eventParam = param.getAsString();
-            if (eventParam.startsWith("filterKeys="))
-                filterKeys = Arrays.asList(eventParam.substring(eventParam.indexOf("=") + 1).split(","));
-            if (eventParam.startsWith("renameKeys="))
-                renameKeys = Arrays.asList(eventParam.substring(eventParam.indexOf("=") + 1).split(","));
-            if (eventParam.startsWith("filterEVKeys="))
-                filterEVKeys = Arrays.asList(eventParam.substring(eventParam.indexOf("=") + 1).split(","));
-            if (eventParam.startsWith("makeBitArray=")) bitArrayKey = eventParam.substring(eventParam.indexOf("=") + 1);
-            if (eventParam.startsWith("setPlayerState="))
-                playerStateKey = eventParam.substring(eventParam.indexOf("=") + 1);
-            if (eventParam.startsWith("delayDupeWidget")) {
-                try {
-                    delayDupeWidget = Integer.parseInt(eventParam.split("delayDupeWidget=")[1]);
-                } catch (Exception e) {
-                    delayDupeWidget = 2;
-                }
-            }
-        }
-        if (rootWidgetID != -1 && (filterKeys.size() > 0 || renameKeys.size() > 0))
-            widgetInfo = filterWidgetInfo(widgetInfo, filterKeys, renameKeys, bitArrayKey, filterEVKeys, delayDupeWidget);
+        if (rootWidgetID != -1 && (eventSpec.getFilterKeys().size() > 0 || eventSpec.getRenameKeys().size() > 0))
+            widgetInfo = filterWidgetInfo(widgetInfo, eventSpec);
 
         // If requested, set the playerState to the processed widget data
+        String playerStateKey = eventSpec.getPlayerStateKey();
         if (playerStateKey != null && widgetInfo != null && widgetInfo.has(playerStateKey)) {
             JsonObject playerState = plugin.getPlayerState();
             playerState.add(playerStateKey, widgetInfo.get(playerStateKey));
@@ -334,6 +251,49 @@ public class Utils {
         }
     }
 
+    // Resolves the crop hints of a screenshot request to canvas bounds. Must be called on the client thread
+    // Hints are "chatbox", "overlay", "dialogSprite" or "widget:<groupId>". Unknown or hidden regions are skipped
+    public List<Rectangle> getCropRegions(List<String> regions) {
+        List<Rectangle> bounds = new ArrayList<>();
+        Rectangle canvas = new Rectangle(0, 0, client.getCanvasWidth(), client.getCanvasHeight());
+        for (String region : regions) {
+            if (region == null) continue;
+            Rectangle regionBounds = null;
+            switch (region) {
+                case "chatbox": regionBounds = getWidgetBounds(client.getWidget(ComponentID.CHATBOX_PARENT)); break;
+                case "overlay": regionBounds = plugin.getOverlayBounds(); break;
+                case "dialogSprite": regionBounds = getWidgetBounds(client.getWidget(InterfaceID.DIALOG_SPRITE, 0)); break;
+                default:
+                    if (!region.startsWith("widget:")) break;
+                    try { regionBounds = getGroupBounds(Integer.parseInt(region.substring(7))); }
+                    catch (NumberFormatException e) { log.debug("Invalid crop region {}", region); }
+            }
+            // Widgets can be positioned partly off the canvas
+            if (regionBounds != null) regionBounds = regionBounds.intersection(canvas);
+            if (regionBounds != null && !regionBounds.isEmpty()) bounds.add(regionBounds);
+        }
+        return bounds;
+    }
+
+    // The union of the group's root widgets, the ones whose parent is outside the group
+    // Child 0 is just the first component and often only covers part of the interface
+    private Rectangle getGroupBounds(int groupId) {
+        Rectangle bounds = null;
+        Widget widget;
+        for (int childId = 0; (widget = client.getWidget(groupId, childId)) != null; childId++) {
+            if (WidgetUtil.componentToInterface(widget.getParentId()) == groupId) continue;
+            Rectangle widgetBounds = getWidgetBounds(widget);
+            if (widgetBounds == null || widgetBounds.isEmpty()) continue;
+            bounds = (bounds == null) ? widgetBounds : bounds.union(widgetBounds);
+        }
+        return bounds;
+    }
+
+    private Rectangle getWidgetBounds(Widget widget) {
+        if (widget == null || widget.isHidden()) return null;
+        return widget.getBounds();
+    }
+
     private String genUniqueStaticKey(JsonObject widgetStructure, int childIteration, String key) {
         if (widgetStructure.has(key)) {
             childIteration += 1;
@@ -343,45 +303,35 @@ public class Utils {
         else return key;
     }
 
-    private JsonObject filterWidgetInfo(JsonObject widgetStructure, List<String> filterKeys, List<String> renameKeys, String bitArrayKey, List<String> filterEVKeys, int delayDupeWidget) {
+    private JsonObject filterWidgetInfo(JsonObject widgetStructure, eventSpec eventSpec) {
         JsonObject filteredStructure = new JsonObject();
         // Only add keys that are included in the filterkeys list
-        for (String key : filterKeys) if (widgetStructure.has(key)) filteredStructure.add(key, widgetStructure.get(key));
+        for (String key : eventSpec.getFilterKeys()) if (widgetStructure.has(key)) filteredStructure.add(key, widgetStructure.get(key));
         // Rename generated keys to the provided rename keys
-        for (String key : renameKeys) {
-            List<String> rename = Arrays.asList(key.split("::"));
-            String oldName = rename.get(0);
-            String newName = rename.get(1);
-            // Return the key value as a boolean if there are mapped values provided
-            List<String> boolValues = new ArrayList<>();
-            if (newName.contains("!!")) {
-                List<String> boolOp = Arrays.asList(newName.split("!!"));
-                newName = boolOp.get(0);
-                boolValues = Arrays.asList(boolOp.get(1).split(":"));
-            }
+        for (eventSpec.RenameKey rename : eventSpec.getRenameKeys()) {
+            String oldName = rename.getOldName();
             JsonElement returnValue = widgetStructure.get(oldName);
-            if (boolValues.size() == 2) {
-                if (returnValue.toString().equals(boolValues.get(0))) returnValue = new JsonPrimitive(true);
-                if (returnValue.toString().equals(boolValues.get(1))) returnValue = new JsonPrimitive(false);
+            // Return the key value as a boolean if there are mapped values provided
+            if (rename.hasBoolValues() && returnValue != null) {
+                if (returnValue.toString().equals(rename.getTrueValue())) returnValue = new JsonPrimitive(true);
+                if (returnValue.toString().equals(rename.getFalseValue())) returnValue = new JsonPrimitive(false);
             }
             if (filteredStructure.has(oldName)) {
                 filteredStructure.remove(oldName);
-                filteredStructure.add(newName, returnValue);
+                filteredStructure.add(rename.getNewName(), returnValue);
             }
         }
         // Filter the result based on a target keyword
-        if (filterEVKeys.size() > 0) {
+        if (eventSpec.getFilterEVKeys().size() > 0) {
             boolean eventValueFound = false;
-            for (String eventValue : filterEVKeys) {
-                // If the filter key is looking for the player's name replace the tag
-                if (eventValue.contains("@localPlayerName") && client.getLocalPlayer().getName() != null) {
-                    eventValue = eventValue.replace("@localPlayerName", client.getLocalPlayer().getName());
-                }
+            // If the filter key is looking for the player's name replace the tag
+            Player localPlayer = client.getLocalPlayer();
+            String localPlayerName = (localPlayer != null) ? localPlayer.getName() : null;
+            for (eventSpec.EventValueFilter eventValue : eventSpec.getFilterEVKeys()) {
                 for (String key : filteredStructure.keySet()) {
                     JsonElement value = filteredStructure.get(key);
                     if (value.isJsonPrimitive() && value.getAsJsonPrimitive().isString()) {
-                        String strValue = value.getAsString();
-                        if (strValue.matches(eventValue)) {
+                        if (eventValue.matches(value.getAsString(), localPlayerName)) {
                             eventValueFound = true;
                             break;
                         }
@@ -389,11 +339,12 @@ public class Utils {
                 }
                 if (eventValueFound) break;
             }
-            if (eventValueFound && delayDupeWidget != 0) plugin.setDelayDupeWidget(delayDupeWidget);
+            if (eventValueFound && eventSpec.getDelayDupeWidget() != 0) plugin.setDelayDupeWidget(eventSpec.getDelayDupeWidget());
             if (!eventValueFound) return null;
         }
         // Optional argument to pack booleans into an array to reduce transmission size. filterKeys sets the index order
         // Could use an int/long bitfield, but an array is more flexible if more than 64 bits need to be represented
+        String bitArrayKey = eventSpec.getBitArrayKey();
         if (bitArrayKey != null) {
             JsonArray bitArray = new JsonArray();
             List<String> keyList = new ArrayList<>(filteredStructure.keySet());
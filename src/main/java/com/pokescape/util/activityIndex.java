@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2024, Quo <https://github.com/Quoded>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.pokescape.util;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+public class activityIndex {
+    private static final menuRule[] NO_RULES = new menuRule[0];
+    private static final animRule[] NO_ANIM_RULES = new animRule[0];
+
+    private final Set<String> categories;
+    private final Map<String, menuRule[]> rulesByOption;
+    private final menuRule[] regexRules;
+    private final intTable<animRule[]> animRules;
+
+    private activityIndex(Set<String> categories, Map<String, menuRule[]> rulesByOption, menuRule[] regexRules, intTable<animRule[]> animRules) {
+        this.categories = categories;
+        this.rulesByOption = rulesByOption;
+        this.regexRules = regexRules;
+        this.animRules = animRules;
+    }
+
+    // Compiles the synced activities into menu option lookups so a click only evaluates the filters that can apply to it
+    public static activityIndex compile(JsonObject activities) {
+        Set<String> categories = new LinkedHashSet<>();
+        Map<String, List<menuRule>> optionRules = new HashMap<>();
+        List<menuRule> regexRules = new ArrayList<>();
+        Map<Integer, List<animRule>> animationRules = new HashMap<>();
+        int ordinal = 0;
+        for (String keyName : activities.keySet()) {
+            JsonElement keyElem = activities.get(keyName);
+            if (keyElem == null || !keyElem.isJsonObject()) continue;
+            JsonObject keyActivity = keyElem.getAsJsonObject();
+            if (!keyActivity.has("category") || keyActivity.get("category").isJsonNull()) continue;
+            String keyCategory = keyActivity.get("category").getAsString();
+            categories.add(keyCategory);
+
+            boolean setToTarget = keyActivity.has("setToTarget") && !keyActivity.get("setToTarget").isJsonNull();
+            String[] clearCategories = toStrings(jsonArray(keyActivity, "clearCategories"));
+            JsonArray actionFilters = jsonArray(keyActivity, "menuActions");
+            JsonArray targetFilters = jsonArray(keyActivity, "menuTargets");
+            if (actionFilters != null && targetFilters != null) {
+                int pairs = Math.min(actionFilters.size(), targetFilters.size());
+                for (int i = 0; i < pairs; i++) {
+                    String action = actionFilters.get(i).getAsString();
+                    String target = targetFilters.get(i).getAsString();
+                    boolean literalAction = isLiteral(action), literalTarget = isLiteral(target);
+                    Pattern actionPattern = literalAction ? null : compilePattern(keyName, action);
+                    Pattern targetPattern = literalTarget ? null : compilePattern(keyName, target);
+                    // Filters that don't compile can never match
+                    if ((!literalAction && actionPattern == null) || (!literalTarget && targetPattern == null)) continue;
+                    menuRule rule = new menuRule(ordinal++, keyName, keyCategory, setToTarget, clearCategories, actionPattern, literalTarget ? target : null, targetPattern);
+                    if (literalAction) optionRules.computeIfAbsent(action, k -> new ArrayList<>()).add(rule);
+                    else regexRules.add(rule);
+                }
+            }
+            JsonArray animFilters = jsonArray(keyActivity, "animActions");
+            if (animFilters != null) {
+                for (JsonElement anim : animFilters) {
+                    int animation = anim.getAsInt();
+                    animationRules.computeIfAbsent(animation, k -> new ArrayList<>()).add(new animRule(keyName, keyCategory, clearCategories));
+                }
+            }
+        }
+        Map<String, menuRule[]> rulesByOption = new HashMap<>();
+        optionRules.forEach((option, rules) -> rulesByOption.put(option, rules.toArray(NO_RULES)));
+        intTable<animRule[]> animRules = new intTable<>(animationRules.size());
+        animationRules.forEach((animation, rules) -> animRules.put(animation, rules.toArray(NO_ANIM_RULES)));
+        return new activityIndex(Collections.unmodifiableSet(categories), rulesByOption, regexRules.toArray(NO_RULES), animRules);
+    }
+
+    // Adds every tracked category to the player state so downstream consumers see the keys before they're first set
+    public void seedCategories(JsonObject recentActivities) {
+        for (String category : categories) if (!recentActivities.has(category)) recentActivities.add(category, null);
+    }
+
+    public void applyMenuAction(JsonObject recentActivities, String menuAction, String menuTarget) {
+        menuRule[] exactRules = rulesByOption.getOrDefault(menuAction, NO_RULES);
+        if (exactRules.length == 0 && regexRules.length == 0) return;
+        // Both rule lists are in sync order, so merge them to apply matches in the same order as the activities were defined
+        int e = 0, r = 0;
+        while (e < exactRules.length || r < regexRules.length) {
+            menuRule rule;
+            if (r >= regexRules.length || (e < exactRules.length && exactRules[e].ordinal < regexRules[r].ordinal)) rule = exactRules[e++];
+            else {
+                rule = regexRules[r++];
+                if (!rule.actionPattern.matcher(menuAction).matches()) continue;
+            }
+            if (!rule.matchesTarget(menuTarget)) continue;
+            clearCategories(recentActivities, rule.clearCategories);
+            if (rule.setToTarget) recentActivities.addProperty(rule.category, menuTarget);
+            else recentActivities.addProperty(rule.category, rule.keyName);
+        }
+    }
+
+    // Animations are looked up directly by id and never touch the menu filters
+    public void applyAnimation(JsonObject recentActivities, int animAction) {
+        animRule[] rules = animRules.get(animAction);
+        if (rules == null) return;
+        for (animRule rule : rules) {
+            clearCategories(recentActivities, rule.clearCategories);
+            recentActivities.addProperty(rule.category, rule.keyName);
+        }
+    }
+
+    private static void clearCategories(JsonObject recentActivities, String[] clearCategories) {
+        for (String category : clearCategories) recentActivities.add(category, null);
+    }
+
+    private static JsonArray jsonArray(JsonObject object, String key) {
+        return (object.has(key) && object.get(key).isJsonArray()) ? object.get(key).getAsJsonArray() : null;
+    }
+
+    private static String[] toStrings(JsonArray array) {
+        if (array == null) return new String[0];
+        String[] strings = new String[array.size()];
+        for (int i = 0; i < strings.length; i++) strings[i] = array.get(i).toString().replaceAll("\"", "");
+        return strings;
+    }
+
+    private static boolean isLiteral(String filter) {
+        return literalPrefixTrie.literalPrefix(filter).length() == filter.length();
+    }
+
+    private static Pattern compilePattern(String keyName, String filter) {
+        try {
+            return Pattern.compile(filter);
+        } catch (PatternSyntaxException e) {
+            log.debug("Activity {} has an invalid menu filter", keyName);
+            return null;
+        }
+    }
+
+    private static class menuRule {
+        private final int ordinal;
+        private final String keyName;
+        private final String category;
+        private final boolean setToTarget;
+        private final String[] clearCategories;
+        private final Pattern actionPattern;
+        private final String targetLiteral;
+        private final Pattern targetPattern;
+
+        private menuRule(int ordinal, String keyName, String category, boolean setToTarget, String[] clearCategories, Pattern actionPattern, String targetLiteral, Pattern targetPattern) {
+            this.ordinal = ordinal;
+            this.keyName = keyName;
+            this.category = category;
+            this.setToTarget = setToTarget;
+            this.clearCategories = clearCategories;
+            this.actionPattern = actionPattern;
+            this.targetLiteral = targetLiteral;
+            this.targetPattern = targetPattern;
+        }
+
+        private boolean matchesTarget(String menuTarget) {
+            if (targetLiteral != null) return targetLiteral.equals(menuTarget);
+            return targetPattern.matcher(menuTarget).matches();
+        }
+    }
+
+    private static class animRule {
+        private final String keyName;
+        private final String category;
+        private final String[] clearCategories;
+
+        private animRule(String keyName, String category, String[] clearCategories) {
+            this.keyName = keyName;
+            this.category = category;
+            this.clearCategories = clearCategories;
+        }
+    }
+}
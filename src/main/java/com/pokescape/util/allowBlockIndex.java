@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2024, Quo <https://github.com/Quoded>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.pokescape.util;
+
+import com.google.gson.stream.JsonReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+public class allowBlockIndex {
+    private static final int VERDICT_CACHE_SIZE = 256;
+    private static final rule[] NO_RULES = new rule[0];
+
+    private final Map<String, Map<String, rule>> exactRules;
+    private final rule[] regexRules;
+    private final Map<verdictKey, rule> verdictCache = new LinkedHashMap<verdictKey, rule>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<verdictKey, rule> eldest) {
+            return size() > VERDICT_CACHE_SIZE;
+        }
+    };
+
+    private allowBlockIndex(Map<String, Map<String, rule>> exactRules, rule[] regexRules) {
+        this.exactRules = exactRules;
+        this.regexRules = regexRules;
+    }
+
+    // Compiles the allowblock section straight from its JSON text into exact name lookups per loot type with a regex fallback
+    // A new index is built on every sync, which also discards the verdicts cached by the previous list
+    public static allowBlockIndex compile(String allowBlockList) {
+        Map<String, Map<String, rule>> exactRules = new HashMap<>();
+        List<rule> regexRules = new ArrayList<>();
+        int ordinal = 0;
+        try (JsonReader in = new JsonReader(new StringReader(allowBlockList))) {
+            if (jsonStream.beginObject(in)) {
+                while (in.hasNext()) {
+                    // Parse the values of each entry in the allowblock list
+                    String keyName = in.nextName();
+                    String name = "", type = "", action = "";
+                    if (jsonStream.beginObject(in)) {
+                        while (in.hasNext()) {
+                            switch (in.nextName()) {
+                                case "name": name = stringValue(in); break;
+                                case "type": type = stringValue(in); break;
+                                case "action": action = stringValue(in); break;
+                                default: in.skipValue();
+                            }
+                        }
+                        in.endObject();
+                    }
+                    // Entries with other actions never change the verdict
+                    Boolean verdict = action.equals("allow") ? Boolean.TRUE : action.equals("block") ? Boolean.FALSE : null;
+                    if (verdict == null) continue;
+                    int entryOrdinal = ordinal++;
+                    if (isLiteral(name) && isLiteral(type)) {
+                        // Later entries overwrite earlier ones, which keeps the last match wins behavior
+                        exactRules.computeIfAbsent(type, k -> new HashMap<>()).put(name, new rule(entryOrdinal, verdict, null, null));
+                    } else {
+                        try {
+                            regexRules.add(new rule(entryOrdinal, verdict, Pattern.compile(name), Pattern.compile(type)));
+                        } catch (PatternSyntaxException e) {
+                            log.debug("Allowblock entry {} has an invalid pattern", keyName);
+                        }
+                    }
+                }
+            }
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            log.debug("Unable to read the allowblock list", e);
+        }
+        return new allowBlockIndex(exactRules, regexRules.toArray(NO_RULES));
+    }
+
+    // Returns true or false if matches were found. Return null otherwise
+    public Boolean verdict(String lootName, String lootType) {
+        if (lootName == null) lootName = "";
+        verdictKey key = new verdictKey(lootName, lootType);
+        if (verdictCache.containsKey(key)) {
+            rule cached = verdictCache.get(key);
+            return (cached != null) ? cached.verdict : null;
+        }
+        rule match = findRule(lootName, lootType);
+        verdictCache.put(key, match);
+        return (match != null) ? match.verdict : null;
+    }
+
+    private rule findRule(String lootName, String lootType) {
+        Map<String, rule> typeRules = exactRules.get(lootType);
+        rule match = (typeRules != null) ? typeRules.get(lootName) : null;
+        // Only a regex entry defined after the exact match can override it, so search from the end of the list
+        for (int i = regexRules.length - 1; i >= 0; i--) {
+            rule candidate = regexRules[i];
+            if (match != null && candidate.ordinal < match.ordinal) break;
+            if (candidate.namePattern.matcher(lootName).matches() && candidate.typePattern.matcher(lootType).matches()) return candidate;
+        }
+        return match;
+    }
+
+    private static String stringValue(JsonReader in) throws IOException {
+        String value = jsonStream.nextString(in);
+        return (value != null) ? value : "";
+    }
+
+    private static boolean isLiteral(String filter) {
+        return literalPrefixTrie.literalPrefix(filter).length() == filter.length();
+    }
+
+    private static class rule {
+        private final int ordinal;
+        private final Boolean verdict;
+        private final Pattern namePattern;
+        private final Pattern typePattern;
+
+        private rule(int ordinal, Boolean verdict, Pattern namePattern, Pattern typePattern) {
+            this.ordinal = ordinal;
+            this.verdict = verdict;
+            this.namePattern = namePattern;
+            this.typePattern = typePattern;
+        }
+    }
+
+    @Value
+    private static class verdictKey {
+        String lootName;
+        String lootType;
+    }
+}
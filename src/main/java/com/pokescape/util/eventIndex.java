@@ -0,0 +1,266 @@
+/*
+ * Copyright (c) 2024, Quo <https://github.com/Quoded>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.pokescape.util;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import static net.runelite.http.api.RuneLiteAPI.GSON;
+
+@Slf4j
+public class eventIndex {
+    public static final String GAME_MESSAGE = "gameMessage";
+    public static final String OVERHEAD_TEXT = "overHeadText";
+    public static final String LOADED_WIDGET = "loadedWidget";
+    public static final String CONTAINER_UPDATE = "containerUpdate";
+
+    // Widget group ids are the upper 16 bits of a component id
+    private static final int MAX_WIDGET_GROUP = 0xFFFF;
+
+    private final Map<String, typeBucket> eventsByType;
+    private final widgetTable widgetEvents;
+    @Getter
+    private final JsonObject containerEvents;
+
+    private eventIndex(Map<String, typeBucket> eventsByType, JsonObject containerEvents) {
+        this.eventsByType = eventsByType;
+        this.widgetEvents = compileWidgetEvents(eventsByType.get(LOADED_WIDGET));
+        this.containerEvents = containerEvents;
+    }
+
+    // Compiles the synced events section straight from its JSON text, so matching doesn't need to walk a json tree or recompile regexes per message
+    // containerUpdate entries are also collected as {items, param} for the goal container checks
+    public static eventIndex compile(String events, String eventType) {
+        Map<String, List<compiledEvent>> compiledByType = new HashMap<>();
+        JsonObject containerEvents = new JsonObject();
+        try (JsonReader in = new JsonReader(new StringReader(events))) {
+            if (jsonStream.beginObject(in)) {
+                while (in.hasNext()) {
+                    String keyName = in.nextName();
+                    if (!jsonStream.beginObject(in)) continue;
+                    String filterKeyValue = null, eventKey = null, eventParameters = null, itemIDs = null;
+                    while (in.hasNext()) {
+                        switch (in.nextName()) {
+                            case "type": filterKeyValue = jsonStream.nextString(in); break;
+                            case "event": eventKey = jsonStream.nextString(in); break;
+                            case "param": eventParameters = (in.peek() == JsonToken.BEGIN_ARRAY) ? jsonStream.readRaw(in) : skip(in); break;
+                            case "items": itemIDs = (in.peek() == JsonToken.BEGIN_ARRAY) ? jsonStream.readRaw(in) : skip(in); break;
+                            default: in.skipValue();
+                        }
+                    }
+                    in.endObject();
+                    if (filterKeyValue == null) continue;
+                    eventObject event = new eventObject(keyName, eventType, eventSpec.parse(parameters(eventParameters)));
+                    compiledByType.computeIfAbsent(filterKeyValue, k -> new ArrayList<>()).add(new compiledEvent(eventKey, compilePattern(keyName, eventKey), event));
+                    if (filterKeyValue.equals(CONTAINER_UPDATE)) {
+                        // The container checks read these as trees, they are only built for the few container events
+                        JsonObject containerEvent = new JsonObject();
+                        containerEvent.add("items", (itemIDs != null) ? GSON.fromJson(itemIDs, JsonArray.class) : new JsonArray());
+                        containerEvent.add("param", (eventParameters != null) ? GSON.fromJson(eventParameters, JsonArray.class) : new JsonArray());
+                        containerEvents.add(keyName, containerEvent);
+                    }
+                }
+            }
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            log.debug("Unable to read the synced events", e);
+        }
+        Map<String, typeBucket> eventsByType = new HashMap<>();
+        compiledByType.forEach((type, entries) -> eventsByType.put(type, new typeBucket(entries)));
+        return new eventIndex(eventsByType, containerEvents);
+    }
+
+    // Parameters are matched as strings, nested values keep their JSON text like JsonElement.toString
+    private static String[] parameters(String eventParameters) throws IOException {
+        if (eventParameters == null) return new String[0];
+        List<String> parameters = new ArrayList<>();
+        try (JsonReader in = new JsonReader(new StringReader(eventParameters))) {
+            in.beginArray();
+            while (in.hasNext()) {
+                JsonToken token = in.peek();
+                if (token == JsonToken.BEGIN_ARRAY || token == JsonToken.BEGIN_OBJECT) parameters.add(jsonStream.readRaw(in));
+                else if (token == JsonToken.NULL) { in.nextNull(); parameters.add("null"); }
+                else parameters.add(jsonStream.nextString(in));
+            }
+            in.endArray();
+        }
+        return parameters.toArray(new String[0]);
+    }
+
+    private static String skip(JsonReader in) throws IOException {
+        in.skipValue();
+        return null;
+    }
+
+    private static Pattern compilePattern(String keyName, String eventKey) {
+        if (eventKey == null) return null;
+        try {
+            return Pattern.compile(eventKey);
+        } catch (PatternSyntaxException e) {
+            // Fall back to prefix matching rather than failing every message that reaches this event
+            log.debug("Event {} has an invalid pattern", keyName);
+            return null;
+        }
+    }
+
+    // Returns every event of the given type that matches, in the order the events were synced
+    // The literal prefilter narrows the events down to the few whose leading text starts the message before any regex runs
+    public List<eventObject> match(String filterValue, String event) {
+        typeBucket bucket = eventsByType.get(filterValue);
+        if (bucket == null || event == null) return Collections.emptyList();
+        List<eventObject> matchedEvent = null;
+        for (int candidate : bucket.prefilter.candidates(event)) {
+            compiledEvent entry = bucket.entries[candidate];
+            if (!entry.matches(event)) continue;
+            if (matchedEvent == null) matchedEvent = new ArrayList<>();
+            matchedEvent.add(entry.event);
+        }
+        return (matchedEvent != null) ? matchedEvent : Collections.emptyList();
+    }
+
+    // Returns the loadedWidget events for a widget group using the same startsWith/regex rules as match()
+    public List<eventObject> matchWidget(int groupId) {
+        if (groupId < 0 || groupId > MAX_WIDGET_GROUP) return match(LOADED_WIDGET, Integer.toString(groupId));
+        return widgetEvents.match(groupId);
+    }
+
+    // Splits the loadedWidget events once into exact numeric keys and the few keys that still need a regex
+    private static widgetTable compileWidgetEvents(typeBucket bucket) {
+        Map<Integer, List<Integer>> numericKeys = new HashMap<>();
+        List<Integer> patternKeys = new ArrayList<>();
+        if (bucket != null) {
+            for (int i = 0; i < bucket.entries.length; i++) {
+                String eventKey = bucket.entries[i].eventKey;
+                if (eventKey == null) continue;
+                if (isWidgetGroup(eventKey)) numericKeys.computeIfAbsent(Integer.parseInt(eventKey), k -> new ArrayList<>()).add(i);
+                else patternKeys.add(i);
+            }
+        }
+        intTable<int[]> numeric = new intTable<>(numericKeys.size());
+        numericKeys.forEach((groupId, entries) -> numeric.put(groupId, entries.stream().mapToInt(Integer::intValue).toArray()));
+        return new widgetTable(bucket, numeric, patternKeys.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    private static boolean isWidgetGroup(String eventKey) {
+        if (eventKey.isEmpty() || eventKey.length() > 5 || (eventKey.length() > 1 && eventKey.charAt(0) == '0')) return false;
+        for (int i = 0; i < eventKey.length(); i++) if (eventKey.charAt(i) < '0' || eventKey.charAt(i) > '9') return false;
+        return Integer.parseInt(eventKey) <= MAX_WIDGET_GROUP;
+    }
+
+    public List<eventObject> getEvents(String filterValue) {
+        typeBucket bucket = eventsByType.get(filterValue);
+        if (bucket == null) return Collections.emptyList();
+        List<eventObject> events = new ArrayList<>(bucket.entries.length);
+        for (compiledEvent entry : bucket.entries) events.add(entry.event);
+        return events;
+    }
+
+    private static class typeBucket {
+        private final compiledEvent[] entries;
+        private final literalPrefixTrie prefilter;
+
+        private typeBucket(List<compiledEvent> entries) {
+            this.entries = entries.toArray(new compiledEvent[0]);
+            List<String> eventKeys = new ArrayList<>(entries.size());
+            for (compiledEvent entry : entries) eventKeys.add(entry.eventKey);
+            this.prefilter = new literalPrefixTrie(eventKeys);
+        }
+    }
+
+    // Each group id is resolved once, after that any widget load is a single table probe
+    // The table is only read and filled from the client thread, which is the only caller of matchWidget
+    private static class widgetTable {
+        private final compiledEvent[] entries;
+        private final intTable<int[]> numericKeys;
+        private final int[] patternKeys;
+        private final intTable<List<eventObject>> resolved = new intTable<>(64);
+
+        private widgetTable(typeBucket bucket, intTable<int[]> numericKeys, int[] patternKeys) {
+            this.entries = (bucket != null) ? bucket.entries : new compiledEvent[0];
+            this.numericKeys = numericKeys;
+            this.patternKeys = patternKeys;
+        }
+
+        private List<eventObject> match(int groupId) {
+            if (entries.length == 0) return Collections.emptyList();
+            List<eventObject> matched = resolved.get(groupId);
+            if (matched == null) {
+                matched = resolve(groupId);
+                resolved.put(groupId, matched);
+            }
+            return matched;
+        }
+
+        private List<eventObject> resolve(int groupId) {
+            int[] matched = new int[entries.length];
+            int count = 0;
+            // A numeric key matches through startsWith, so only the digit prefixes of the group id can hit
+            for (int prefix = groupId; ; prefix /= 10) {
+                int[] keys = numericKeys.get(prefix);
+                if (keys != null) for (int key : keys) matched[count++] = key;
+                if (prefix < 10) break;
+            }
+            if (patternKeys.length > 0) {
+                String group = Integer.toString(groupId);
+                for (int key : patternKeys) if (entries[key].matches(group)) matched[count++] = key;
+            }
+            if (count == 0) return Collections.emptyList();
+            // Keep the order the events were synced in
+            Arrays.sort(matched, 0, count);
+            List<eventObject> matchedEvent = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) matchedEvent.add(entries[matched[i]].event);
+            return Collections.unmodifiableList(matchedEvent);
+        }
+    }
+
+    private static class compiledEvent {
+        private final String eventKey;
+        private final Pattern pattern;
+        private final eventObject event;
+
+        private compiledEvent(String eventKey, Pattern pattern, eventObject event) {
+            this.eventKey = eventKey;
+            this.pattern = pattern;
+            this.event = event;
+        }
+
+        private boolean matches(String event) {
+            if (eventKey == null) return false;
+            return event.startsWith(eventKey) || (pattern != null && pattern.matcher(event).matches());
+        }
+    }
+}
@@ -23,12 +23,11 @@
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 package com.pokescape.util;
-import com.google.gson.JsonArray;
 import lombok.Value;
 
 @Value
 public class eventObject {
     String eventName;
     String eventType;
-    JsonArray eventParameters;
+    eventSpec eventSpec;
 }
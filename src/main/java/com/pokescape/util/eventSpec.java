@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2024, Quo <https://github.com/Quoded>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.pokescape.util;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import lombok.Getter;
+import lombok.Value;
+
+// Event parameters parsed once at sync so the client thread never splits or parses parameter strings
+@Getter
+public class eventSpec {
+    // Values used when a timing parameter is present but its value can't be parsed
+    private static final int DEFAULT_DELAY = 2;
+
+    // An event without parameters
+    public static final eventSpec EMPTY = parse(new String[0]);
+
+    public enum InfoRequest { WIDGET_INFO, SUPPRESS_REQUEST, SUPPRESS_NULL_WIDGET, RAID_INFO, VISIBLE_PLAYERS, PLAYER_LOCATION, PLAYER_ITEMS }
+    public enum OverheadMatch { ANY, FOLLOWER, SELF, NAME }
+
+    private final Integer delaySubmission;
+    private final Integer delayMsgCleanup;
+    private final Integer delayFetch;
+    private final boolean suppressFetch;
+    private final boolean processSameTick;
+    private final List<InfoRequest> infoRequests;
+    private final List<String> filterKeys;
+    private final List<RenameKey> renameKeys;
+    private final List<EventValueFilter> filterEVKeys;
+    private final String bitArrayKey;
+    private final String playerStateKey;
+    private final int delayDupeWidget;
+    private final OverheadMatch overheadMatch;
+    private final String overheadActorName;
+
+    private eventSpec(Integer delaySubmission, Integer delayMsgCleanup, Integer delayFetch, boolean suppressFetch, boolean processSameTick,
+                      List<InfoRequest> infoRequests, List<String> filterKeys, List<RenameKey> renameKeys, List<EventValueFilter> filterEVKeys,
+                      String bitArrayKey, String playerStateKey, int delayDupeWidget, OverheadMatch overheadMatch, String overheadActorName) {
+        this.delaySubmission = delaySubmission;
+        this.delayMsgCleanup = delayMsgCleanup;
+        this.delayFetch = delayFetch;
+        this.suppressFetch = suppressFetch;
+        this.processSameTick = processSameTick;
+        this.infoRequests = infoRequests;
+        this.filterKeys = filterKeys;
+        this.renameKeys = renameKeys;
+        this.filterEVKeys = filterEVKeys;
+        this.bitArrayKey = bitArrayKey;
+        this.playerStateKey = playerStateKey;
+        this.delayDupeWidget = delayDupeWidget;
+        this.overheadMatch = overheadMatch;
+        this.overheadActorName = overheadActorName;
+    }
+
+    public static eventSpec parse(JsonArray eventParameters) {
+        String[] parameters = new String[eventParameters.size()];
+        for (int i = 0; i < parameters.length; i++) {
+            JsonElement param = eventParameters.get(i);
+            parameters[i] = (param.isJsonPrimitive()) ? param.getAsString() : param.toString();
+        }
+        return parse(parameters);
+    }
+
+    public static eventSpec parse(String[] parameters) {
+        Integer delaySubmission = null, delayMsgCleanup = null, delayFetch = null;
+        boolean suppressFetch = false, processSameTick = false;
+        List<InfoRequest> infoRequests = new ArrayList<>();
+        List<String> filterKeys = Collections.emptyList();
+        List<RenameKey> renameKeys = Collections.emptyList();
+        List<EventValueFilter> filterEVKeys = Collections.emptyList();
+        String bitArrayKey = null, playerStateKey = null;
+        int delayDupeWidget = 0;
+
+        for (String eventParam : parameters) {
+            // delaySubmission parameter temporarily prevents loot from being submitted
+            if (eventParam.startsWith("delaySubmission")) delaySubmission = parseDelay(eventParam, "delaySubmission=");
+            // delayMsgCleanup parameter temporarily prevents the message collector from being cleared
+            if (eventParam.startsWith("delayMsgCleanup")) delayMsgCleanup = parseDelay(eventParam, "delayMsgCleanup=");
+            // delayFetch parameter temporarily prevents an event from being processed
+            if (eventParam.startsWith("delayFetch")) delayFetch = parseDelay(eventParam, "delayFetch=");
+            // suppressFetch parameters blocks an event from being sent back to the server
+            if (eventParam.startsWith("suppressFetch")) suppressFetch = true;
+            // Used if the widget will be overwritten/unavailable the next tick
+            if (eventParam.startsWith("processSameTick")) processSameTick = true;
+            if (eventParam.startsWith("filterKeys=")) filterKeys = splitValues(eventParam);
+            if (eventParam.startsWith("renameKeys=")) renameKeys = parseRenameKeys(splitValues(eventParam));
+            if (eventParam.startsWith("filterEVKeys=")) filterEVKeys = parseEventValueFilters(splitValues(eventParam));
+            if (eventParam.startsWith("makeBitArray=")) bitArrayKey = eventParam.substring(eventParam.indexOf("=") + 1);
+            if (eventParam.startsWith("setPlayerState=")) playerStateKey = eventParam.substring(eventParam.indexOf("=") + 1);
+            if (eventParam.startsWith("delayDupeWidget")) delayDupeWidget = parseDelay(eventParam, "delayDupeWidget=");
+            switch (eventParam) {
+                case "widgetInfo": infoRequests.add(InfoRequest.WIDGET_INFO); break;
+                case "suppressRequest": infoRequests.add(InfoRequest.SUPPRESS_REQUEST); break;
+                case "suppressNullWidget": infoRequests.add(InfoRequest.SUPPRESS_NULL_WIDGET); break;
+                case "raidInfo": infoRequests.add(InfoRequest.RAID_INFO); break;
+                case "visiblePlayers": infoRequests.add(InfoRequest.VISIBLE_PLAYERS); break;
+                case "playerLocation": infoRequests.add(InfoRequest.PLAYER_LOCATION); break;
+                case "playerItems": infoRequests.add(InfoRequest.PLAYER_ITEMS); break;
+                default:
+            }
+        }
+
+        // Overhead events are filtered by the first parameter only
+        OverheadMatch overheadMatch = OverheadMatch.ANY;
+        String overheadActorName = "";
+        String matchOp = (parameters.length > 0) ? parameters[0] : "";
+        if (matchOp.startsWith("Actor=")) { overheadMatch = OverheadMatch.NAME; overheadActorName = matchOp.substring(matchOp.indexOf("=") + 1); }
+        else if (matchOp.equals("matchName")) overheadMatch = OverheadMatch.NAME;
+        else if (matchOp.equals("matchFollower")) overheadMatch = OverheadMatch.FOLLOWER;
+        else if (matchOp.equals("matchSelf")) overheadMatch = OverheadMatch.SELF;
+
+        return new eventSpec(delaySubmission, delayMsgCleanup, delayFetch, suppressFetch, processSameTick, Collections.unmodifiableList(infoRequests),
+                filterKeys, renameKeys, filterEVKeys, bitArrayKey, playerStateKey, delayDupeWidget, overheadMatch, overheadActorName);
+    }
+
+    private static int parseDelay(String eventParam, String prefix) {
+        if (!eventParam.startsWith(prefix)) return DEFAULT_DELAY;
+        try { return Integer.parseInt(eventParam.substring(prefix.length())); }
+        catch (NumberFormatException e) { return DEFAULT_DELAY; }
+    }
+
+    private static List<String> splitValues(String eventParam) {
+        return Collections.unmodifiableList(Arrays.asList(eventParam.substring(eventParam.indexOf("=") + 1).split(",")));
+    }
+
+    private static List<RenameKey> parseRenameKeys(List<String> keys) {
+        List<RenameKey> renameKeys = new ArrayList<>();
+        for (String key : keys) {
+            String[] rename = key.split("::");
+            if (rename.length < 2) continue;
+            String oldName = rename[0];
+            String newName = rename[1];
+            // Return the key value as a boolean if there are mapped values provided
+            String trueValue = null, falseValue = null;
+            if (newName.contains("!!")) {
+                String[] boolOp = newName.split("!!");
+                newName = boolOp[0];
+                String[] boolValues = (boolOp.length > 1) ? boolOp[1].split(":") : new String[0];
+                if (boolValues.length == 2) { trueValue = boolValues[0]; falseValue = boolValues[1]; }
+            }
+            renameKeys.add(new RenameKey(oldName, newName, trueValue, falseValue));
+        }
+        return Collections.unmodifiableList(renameKeys);
+    }
+
+    private static List<EventValueFilter> parseEventValueFilters(List<String> values) {
+        List<EventValueFilter> filters = new ArrayList<>();
+        for (String value : values) {
+            // Filters that reference the player's name are resolved when the event fires
+            Pattern pattern = null;
+            if (!value.contains(EventValueFilter.LOCAL_PLAYER_NAME)) {
+                try { pattern = Pattern.compile(value); }
+                catch (PatternSyntaxException e) { continue; }
+            }
+            filters.add(new EventValueFilter(value, pattern));
+        }
+        return Collections.unmodifiableList(filters);
+    }
+
+    @Value
+    public static class RenameKey {
+        String oldName;
+        String newName;
+        String trueValue;
+        String falseValue;
+
+        public boolean hasBoolValues() {
+            return trueValue != null && falseValue != null;
+        }
+    }
+
+    @Value
+    public static class EventValueFilter {
+        public static final String LOCAL_PLAYER_NAME = "@localPlayerName";
+
+        String value;
+        Pattern pattern;
+
+        public boolean matches(String strValue, String localPlayerName) {
+            if (pattern != null) return pattern.matcher(strValue).matches();
+            String eventValue = (localPlayerName != null) ? value.replace(LOCAL_PLAYER_NAME, localPlayerName) : value;
+            return strValue.matches(eventValue);
+        }
+    }
+}
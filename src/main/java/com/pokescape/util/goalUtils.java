@@ -214,7 +214,7 @@ public class goalUtils {
                         if (conMatch) conditionMetCount += 1;
                     }
                     // Process the event if all event conditions are met
-                    if (containerConditions.size() == conditionMetCount) utils.processEvent(keyName, "gameEvent", new JsonArray(), -1, new ArrayList<>(), playerState, -1);
+                    if (containerConditions.size() == conditionMetCount) utils.processEvent(keyName, "gameEvent", eventSpec.EMPTY, -1, new ArrayList<>(), playerState, -1);
                 }
             });
         });
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2024, Quo <https://github.com/Quoded>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.pokescape.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeMap;
+
+public class literalPrefixTrie {
+    private static final String REGEX_METACHARS = "\\^$.|?*+()[]{}";
+    private static final int[] NO_CANDIDATES = new int[0];
+
+    private final node root;
+    private final int[] alwaysCandidates;
+
+    // Builds the prefilter from event keys. The position of each key in the list is the id returned by candidates()
+    public literalPrefixTrie(List<String> eventKeys) {
+        builderNode builderRoot = new builderNode();
+        List<Integer> always = new ArrayList<>();
+        for (int id = 0; id < eventKeys.size(); id++) {
+            String eventKey = eventKeys.get(id);
+            if (eventKey == null) continue;
+            String prefix = literalPrefix(eventKey);
+            if (prefix.isEmpty()) { always.add(id); continue; }
+            builderNode current = builderRoot;
+            for (int i = 0; i < prefix.length(); i++) current = current.children.computeIfAbsent(prefix.charAt(i), c -> new builderNode());
+            current.terminals.add(id);
+        }
+        root = builderRoot.freeze();
+        alwaysCandidates = toArray(always);
+    }
+
+    // Events are matched with startsWith or a full regex match, so both are anchored to the start of the message.
+    // Any message that can match must begin with the literal characters that lead the event key
+    public static String literalPrefix(String eventKey) {
+        // Alternation can make any leading literal optional
+        if (eventKey.indexOf('|') >= 0) return "";
+        int end = 0;
+        while (end < eventKey.length() && REGEX_METACHARS.indexOf(eventKey.charAt(end)) < 0) end++;
+        // A quantifier makes the character before it optional
+        if (end < eventKey.length() && end > 0) {
+            char next = eventKey.charAt(end);
+            if (next == '?' || next == '*' || next == '{') end--;
+        }
+        return eventKey.substring(0, end);
+    }
+
+    // Returns the ids of every key whose literal prefix starts the message, in ascending order
+    public int[] candidates(String message) {
+        int[] found = null;
+        int count = 0;
+        node current = root;
+        for (int i = 0; current != null; i++) {
+            if (current.terminals.length > 0) {
+                if (found == null) found = new int[current.terminals.length + alwaysCandidates.length + 4];
+                if (count + current.terminals.length > found.length) found = Arrays.copyOf(found, (count + current.terminals.length) * 2);
+                System.arraycopy(current.terminals, 0, found, count, current.terminals.length);
+                count += current.terminals.length;
+            }
+            if (i >= message.length()) break;
+            current = current.child(message.charAt(i));
+        }
+        if (found == null) return alwaysCandidates.length > 0 ? alwaysCandidates : NO_CANDIDATES;
+        if (count + alwaysCandidates.length > found.length) found = Arrays.copyOf(found, count + alwaysCandidates.length);
+        System.arraycopy(alwaysCandidates, 0, found, count, alwaysCandidates.length);
+        count += alwaysCandidates.length;
+        int[] candidates = Arrays.copyOf(found, count);
+        Arrays.sort(candidates);
+        return candidates;
+    }
+
+    private static int[] toArray(List<Integer> values) {
+        int[] array = new int[values.size()];
+        for (int i = 0; i < array.length; i++) array[i] = values.get(i);
+        return array;
+    }
+
+    private static class node {
+        private final char[] keys;
+        private final node[] children;
+        private final int[] terminals;
+
+        private node(char[] keys, node[] children, int[] terminals) {
+            this.keys = keys;
+            this.children = children;
+            this.terminals = terminals;
+        }
+
+        private node child(char c) {
+            int index = Arrays.binarySearch(keys, c);
+            return (index >= 0) ? children[index] : null;
+        }
+    }
+
+    private static class builderNode {
+        private final TreeMap<Character, builderNode> children = new TreeMap<>();
+        private final List<Integer> terminals = new ArrayList<>();
+
+        private node freeze() {
+            char[] keys = new char[children.size()];
+            node[] frozen = new node[children.size()];
+            int i = 0;
+            for (Character key : children.keySet()) {
+                keys[i] = key;
+                frozen[i] = children.get(key).freeze();
+                i++;
+            }
+            return new node(keys, frozen, toArray(terminals));
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2024, Quo <https://github.com/Quoded>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.pokescape.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Fixed size ring of recent game messages tagged with the tick they were received on
+// The client thread is the only writer. Snapshots are lock-free and safe to take from any thread
+public class messageBuffer {
+    private static final int CAPACITY = 256;
+
+    private final AtomicReferenceArray<entry> entries = new AtomicReferenceArray<>(CAPACITY);
+    private volatile long written;
+    private volatile int windowStart;
+
+    public void add(int tick, String message) {
+        long sequence = written;
+        entries.set((int) (sequence % CAPACITY), new entry(sequence, tick, message));
+        written = sequence + 1;
+    }
+
+    // Messages received before this tick are no longer part of the default window
+    public void expireBefore(int tick) {
+        windowStart = tick;
+    }
+
+    public int getWindowStart() {
+        return windowStart;
+    }
+
+    public List<String> snapshot() {
+        return snapshot(windowStart);
+    }
+
+    // Returns the messages received on or after the given tick, oldest first
+    public List<String> snapshot(int fromTick) {
+        long end = written;
+        long oldest = Math.max(0, end - CAPACITY);
+        // Ticks only increase, so walk back from the newest message to find where the window starts
+        long start = end;
+        while (start > oldest) {
+            entry candidate = entries.get((int) ((start - 1) % CAPACITY));
+            if (candidate == null || candidate.sequence != start - 1 || candidate.tick < fromTick) break;
+            start--;
+        }
+        List<String> messages = new ArrayList<>((int) (end - start));
+        for (long sequence = start; sequence < end; sequence++) {
+            entry message = entries.get((int) (sequence % CAPACITY));
+            // Skip slots the writer has reused since the window was found
+            if (message != null && message.sequence == sequence) messages.add(message.message);
+        }
+        return messages;
+    }
+
+    private static class entry {
+        private final long sequence;
+        private final int tick;
+        private final String message;
+
+        private entry(long sequence, int tick, String message) {
+            this.sequence = sequence;
+            this.tick = tick;
+            this.message = message;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2024, Quo <https://github.com/Quoded>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.pokescape.util;
+
+import lombok.Getter;
+
+// A matched event waiting to be processed, along with the context captured when it matched
+@Getter
+public class pendingEvent {
+    private final eventObject event;
+    private final int eventWidget;
+    private final int messageWindow;
+    private int ticksRemaining;
+
+    public pendingEvent(eventObject event, int eventWidget, int messageWindow) {
+        this.event = event;
+        this.eventWidget = eventWidget;
+        // Messages from this tick onward are submitted with the event, regardless of later cleanups
+        this.messageWindow = messageWindow;
+        // delayFetch parameter temporarily prevents an event from being processed
+        Integer delayFetch = event.getEventSpec().getDelayFetch();
+        this.ticksRemaining = (delayFetch != null) ? delayFetch : 0;
+    }
+
+    // Counts down one game tick and returns true once the event is due
+    public boolean tick() {
+        return --ticksRemaining < 0;
+    }
+}
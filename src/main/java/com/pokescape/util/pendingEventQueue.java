@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2024, Quo <https://github.com/Quoded>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.pokescape.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import lombok.extern.slf4j.Slf4j;
+
+// Matched events waiting for their delayFetch to elapse, drained once per game tick
+@Slf4j
+public class pendingEventQueue {
+    private final int capacity;
+    private final Deque<pendingEvent> pendingEvents = new ArrayDeque<>();
+
+    public pendingEventQueue(int capacity) {
+        this.capacity = capacity;
+    }
+
+    // Returns false when the same widget event is already waiting or the queue is full
+    // Widgets that load twice during delayFetch would otherwise submit the event more than once
+    // Messages (eventWidget -1) are never merged, a message that repeats is a separate occurrence of the event
+    public boolean add(eventObject event, int eventWidget, int messageWindow) {
+        if (eventWidget != -1) {
+            for (pendingEvent queued : pendingEvents) {
+                if (queued.getEventWidget() == eventWidget && Objects.equals(queued.getEvent().getEventName(), event.getEventName())) return false;
+            }
+        }
+        if (pendingEvents.size() >= capacity) {
+            log.debug("Pending event queue is full, dropping event {}", event.getEventName());
+            return false;
+        }
+        pendingEvents.add(new pendingEvent(event, eventWidget, messageWindow));
+        return true;
+    }
+
+    // Counts down every pending event and returns the ones that are due, in the order they matched
+    public List<pendingEvent> tick() {
+        if (pendingEvents.isEmpty()) return Collections.emptyList();
+        List<pendingEvent> due = null;
+        Iterator<pendingEvent> pending = pendingEvents.iterator();
+        while (pending.hasNext()) {
+            pendingEvent queued = pending.next();
+            if (!queued.tick()) continue;
+            pending.remove();
+            if (due == null) due = new ArrayList<>();
+            due.add(queued);
+        }
+        return (due != null) ? due : Collections.emptyList();
+    }
+
+    public boolean isEmpty() {
+        return pendingEvents.isEmpty();
+    }
+}
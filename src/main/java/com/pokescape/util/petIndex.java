@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2024, Quo <https://github.com/Quoded>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.pokescape.util;
+
+import com.google.gson.stream.JsonReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.Map;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+// The pet each NPC can drop, read straight from the synced pets section: {"<npc name>": {"petName": ..., "petID": ...}}
+@Slf4j
+public class petIndex {
+    private final Map<String, pet> petsByNpc;
+
+    private petIndex(Map<String, pet> petsByNpc) {
+        this.petsByNpc = petsByNpc;
+    }
+
+    public static petIndex compile(String pets) {
+        Map<String, pet> petsByNpc = new HashMap<>();
+        try (JsonReader in = new JsonReader(new StringReader(pets))) {
+            if (jsonStream.beginObject(in)) {
+                while (in.hasNext()) {
+                    String npcName = in.nextName();
+                    if (!jsonStream.beginObject(in)) continue;
+                    String petName = null, petID = null;
+                    while (in.hasNext()) {
+                        switch (in.nextName()) {
+                            case "petName": petName = jsonStream.nextString(in); break;
+                            case "petID": petID = jsonStream.nextString(in); break;
+                            default: in.skipValue();
+                        }
+                    }
+                    in.endObject();
+                    if (petName == null || petID == null) continue;
+                    try {
+                        petsByNpc.put(npcName, new pet(petName, Integer.parseInt(petID)));
+                    } catch (NumberFormatException e) {
+                        log.debug("Pet {} has an invalid id", petName);
+                    }
+                }
+            }
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Unable to read the synced pets", e);
+        }
+        return new petIndex(petsByNpc);
+    }
+
+    // Returns null if the NPC doesn't drop a pet
+    public pet get(String npcName) {
+        return petsByNpc.get(npcName);
+    }
+
+    @Value
+    public static class pet {
+        String petName;
+        int petID;
+    }
+}
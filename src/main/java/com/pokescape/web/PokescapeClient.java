@@ -30,13 +30,15 @@ import com.pokescape.PokescapePlugin;
 import com.pokescape.ui.PokescapePanel;
 import com.pokescape.util.Utils;
 import com.pokescape.util.PokeScapeGoals;
+import com.pokescape.util.allowBlockIndex;
+import com.pokescape.util.eventIndex;
+import com.pokescape.util.petIndex;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
 import net.runelite.api.Client;
 import net.runelite.client.game.ItemStack;
-import net.runelite.client.ui.DrawManager;
-import net.runelite.client.util.ImageUtil;
 import static net.runelite.http.api.RuneLiteAPI.GSON;
 import okhttp3.Call;
 import okhttp3.Callback;
@@ -45,22 +47,20 @@ import okhttp3.OkHttpClient;
 import okhttp3.HttpUrl;
 import okhttp3.Request;
 import okhttp3.RequestBody;
-import okhttp3.ResponseBody;
-import okio.Buffer;
-import okio.BufferedSource;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
 import okhttp3.Response;
 import okhttp3.MultipartBody;
 import java.io.IOException;
-import java.io.ByteArrayOutputStream;
 import java.net.ConnectException;
-import java.awt.Image;
-import java.awt.image.BufferedImage;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.List;
-import javax.imageio.ImageIO;
 import javax.inject.Inject;
 import lombok.extern.slf4j.Slf4j;
 
@@ -68,20 +68,27 @@ import lombok.extern.slf4j.Slf4j;
 public class PokescapeClient {
     private @Inject Client client;
     private @Inject OkHttpClient okHttpClient;
-    private @Inject OkHttpClient sseClient;
-    private @Inject DrawManager drawManager;
     private @Inject PokescapePlugin plugin;
     private @Inject PokescapeConfig config;
     private @Inject formatBody format;
     private @Inject Utils utils;
     private @Inject PokeScapeGoals goals;
     private @Inject PokescapePanel panel;
-
-    private static final String API_ENDPOINT = "https://api.pokescape.com";
-    private static final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
-    private int reconnectTimeout = 0;
-    private static Call sseHandler;
+    private @Inject submissionOutbox outbox;
+    private @Inject submissionBatcher batcher;
+    private @Inject sseSupervisor sse;
+    private @Inject syncCache cache;
+    private @Inject payloadEncoder encoder;
+    private @Inject screenshotPipeline screenshots;
+
+    static final String API_ENDPOINT = "https://api.pokescape.com";
+    private static final long DEFAULT_SIGNAL_JITTER_MS = 5000;
+    private static final ImmutableList<String> SYNC_SECTIONS = ImmutableList.of("pets", "events", "activities", "allowblock");
+    private static final int TARGET_NONE = 0;
+    private static final int TARGET_ALL = 1;
+    private static final int TARGET_ACCOUNT = 2;
     private JsonObject cacheManifest;
+    private final cachedResponse statusResponse = new cachedResponse();
 
     public void status(PokescapePanel pokescapePanel) {
         panel = pokescapePanel;
@@ -100,104 +107,116 @@ public class PokescapeClient {
         postRequest(postBody, "/profile");
     }
 
-    // Initialize a call instance that doesn't timeout for SSE
+    // Open the SSE connection, replacing any existing one
     public void initSSE() {
-        shutdownSSE();
-        sseClient = sseClient.newBuilder().connectTimeout(0, TimeUnit.MINUTES).readTimeout(0, TimeUnit.MINUTES).writeTimeout(0, TimeUnit.MINUTES).build();
-        connectToSSE(API_ENDPOINT+"/sse", sseClient);
+        sse.start(this::handleSSEEvent, this::showSSEState);
     }
 
-    // Null out the sseHandler so scheduleReconnect doesn't reopen the connection
+    // Stop the SSE connection from reconnecting
     public void shutdownSSE() {
-        if (sseHandler != null) { sseHandler.cancel(); sseHandler = null; }
-    }
-
-    // If the SSE connection is interuppted: First attempt to reconnect instantly, then every 5 seconds
-    private void scheduleReconnect(String url, OkHttpClient sseClient) {
-        if (sseHandler != null) scheduler.schedule(() -> connectToSSE(url, sseClient), reconnectTimeout, TimeUnit.SECONDS);
-        reconnectTimeout = 5;
+        sse.stop();
     }
 
-    private void connectToSSE(String url, OkHttpClient sseClient) {
-        // Build the SSE connection request
-        Request request = new Request.Builder().url(url)
-                .addHeader("Accept", "text/event-stream")
-                .addHeader("Client-Hash", Long.toString(client.getAccountHash()))
-                .build();
-
-        // Create a new call with an event listener and start the connection
-        sseHandler = sseClient.newCall(request);
-        sseHandler.enqueue(new Callback() {
-            @Override
-            public void onResponse(Call call, Response response) {
-                if (!response.isSuccessful()) {
-                    log.debug("Failed to connect to SSE endpoint. HTTP status code: " + response.code());
-                    scheduleReconnect(url, sseClient);
-                    return;
-                }
-                // Read SSE events
-                try (ResponseBody body = response.body()) {
-                    if (body != null) readSSEEvents(body);
-                } catch (Exception e) {
-                    try { if (!e.getMessage().equals("Socket closed")) { scheduleReconnect(url, sseClient); }
-                    } catch (Exception f) { scheduleReconnect(url, sseClient); }
-                }
-            }
-            @Override
-            public void onFailure(Call call, IOException e) {
-                scheduleReconnect(url, sseClient);
-            }
-        });
+    private void showSSEState(sseSupervisor.state state) {
+        switch (state) {
+            case OPEN: panel.setLiveUpdatesStatus(1); break;
+            case CONNECTING: panel.setLiveUpdatesStatus(2); break;
+            case BACKOFF: panel.setLiveUpdatesStatus(3); break;
+            default: panel.setLiveUpdatesStatus(0);
+        }
     }
 
-    private void readSSEEvents(ResponseBody body) throws IOException {
-        // Read SSE events in chunks
-        reconnectTimeout = 0;
-        BufferedSource source = body.source();
-        Buffer buffer = new Buffer();
-        while (!source.exhausted()) {
-            source.read(buffer, 2048);
-            String event = buffer.readUtf8();
-            JsonObject eventBody;
-            try { eventBody = GSON.fromJson(event, JsonObject.class); }
-            catch (Exception e) { eventBody = new JsonObject(); }
-
-            // Validate the message and respond to events
-            if (validMessage(eventBody)) {
-                if (eventBody.has("fetchProfile") && !eventBody.get("fetchProfile").isJsonNull()) {
-                    boolean fetchProfile = eventBody.has("fetchProfile") && !eventBody.get("fetchProfile").isJsonNull() && eventBody.get("fetchProfile").getAsBoolean();
-                    if (fetchProfile) profile(panel, goals);
-                }
-                if (eventBody.has("sync") && !eventBody.get("sync").isJsonNull()) {
-                    boolean syncProfile = eventBody.has("sync") && !eventBody.get("sync").isJsonNull() && eventBody.get("sync").getAsBoolean();
-                    if (syncProfile) sync();
-                }
-            }
+    private void handleSSEEvent(String event) {
+        JsonObject eventBody;
+        try { eventBody = GSON.fromJson(event, JsonObject.class); }
+        catch (Exception e) { eventBody = new JsonObject(); }
+        if (eventBody == null) return;
+
+        // Validate the message and respond to events
+        // Signals addressed to this account skip the broadcast jitter
+        int target = messageTarget(eventBody);
+        if (target == TARGET_NONE) return;
+        boolean broadcast = target == TARGET_ALL;
+        long jitter = (eventBody.has("jitter") && !eventBody.get("jitter").isJsonNull()) ? eventBody.get("jitter").getAsLong() : DEFAULT_SIGNAL_JITTER_MS;
+        if (eventBody.has("fetchProfile") && !eventBody.get("fetchProfile").isJsonNull()) {
+            boolean fetchProfile = eventBody.get("fetchProfile").getAsBoolean();
+            if (fetchProfile) sse.signal("fetchProfile", broadcast, jitter, () -> profile(panel, goals));
+        }
+        if (eventBody.has("sync") && !eventBody.get("sync").isJsonNull()) {
+            boolean syncProfile = eventBody.get("sync").getAsBoolean();
+            if (syncProfile) sse.signal("sync", broadcast, jitter, this::sync);
         }
     }
 
-    private boolean validMessage(JsonObject eventBody) {
-        boolean messageValid = false;
+    private int messageTarget(JsonObject eventBody) {
+        int target = TARGET_NONE;
         if (eventBody.has("id") && eventBody.get("id").isJsonArray()) {
             JsonArray messageIDs = eventBody.get("id").getAsJsonArray();
             for (JsonElement id : messageIDs) {
-                if (id.getAsString().equals(Long.toString(client.getAccountHash()))) messageValid = true;
-                if (id.getAsString().equals("all")) messageValid = true;
+                if (id.getAsString().equals(Long.toString(client.getAccountHash()))) return TARGET_ACCOUNT;
+                if (id.getAsString().equals("all")) target = TARGET_ALL;
             }
         }
-        return messageValid;
+        return target;
     }
 
     public void sync() {
+        sync(null, null);
+    }
+
+    // Requests only the given sections, or everything when sections is null
+    // The manifest is adopted once the sync succeeds, so a failed sync is retried on the next profile
+    private void sync(List<String> sections, JsonObject manifest) {
         postBody postBody = new postBody();
         String rsn = client.getLocalPlayer().getName();
         String clientHash = Long.toString(client.getAccountHash());
         postBody.setRsn(rsn);
         postBody.setClientHash(clientHash);
         postBody.setPluginVersion(PokescapeConfig.PLUGIN_VERSION);
+        postBody.setSyncSections(sections);
+        postBody.setSyncManifest(manifest);
         postRequest(postBody, "/sync");
     }
 
+    // The If-None-Match value for a sync: the held version of each requested section, e.g. "activities=12,events=40"
+    // Null when a requested section has no held version, that section can only come back in full
+    static String syncValidator(JsonObject held, List<String> sections) {
+        if (held == null) return null;
+        List<String> versions = new ArrayList<>();
+        for (String section : (sections != null) ? sections : SYNC_SECTIONS) {
+            JsonElement version = held.get(section);
+            if (version == null || !version.isJsonPrimitive()) return null;
+            String value = version.getAsString();
+            if (value.isEmpty() || value.indexOf('"') >= 0 || value.indexOf(',') >= 0) return null;
+            versions.add(section + "=" + value);
+        }
+        if (versions.isEmpty()) return null;
+        Collections.sort(versions);
+        return "\"" + String.join(",", versions) + "\"";
+    }
+
+    // Nothing changed in the requested sections, the manifest the sync was made for now describes the cache
+    private void syncNotModified(postBody postBody) {
+        panel.setServerStatusText(1);
+        JsonObject manifest = postBody.getSyncManifest();
+        if (manifest == null) return;
+        cacheManifest = manifest;
+        cache.update(Collections.emptyMap(), manifest);
+    }
+
+    // Returns the sync sections whose manifest version changed, or null if the manifest isn't keyed by section
+    static List<String> changedSections(JsonObject cached, JsonObject manifest) {
+        if (cached == null) return null;
+        Set<String> keys = new HashSet<>(cached.keySet());
+        keys.addAll(manifest.keySet());
+        if (!SYNC_SECTIONS.containsAll(keys)) return null;
+        List<String> changed = new ArrayList<>();
+        for (String section : SYNC_SECTIONS) {
+            if (!Objects.equals(cached.get(section), manifest.get(section))) changed.add(section);
+        }
+        return changed;
+    }
+
     public void validateMinigame(PokescapePanel pokescapePanel, String validationData) {
         panel = pokescapePanel;
         postBody postBody = format.minigame(validationData);
@@ -206,12 +225,12 @@ public class PokescapeClient {
 
     public void gameEvent(String eventName, String eventType, List<String> messageCollector, JsonObject eventInfo, JsonObject recentActivities, Integer spriteID) {
         postBody postBody = format.event(eventName, eventType, messageCollector, eventInfo, recentActivities, spriteID);
-        postRequest(postBody, "/event");
+        submitRequest(postBody, "/event");
     }
 
     public void loot(String activity, String name, Integer id, Collection<ItemStack> items, List<String> messageCollector, JsonObject recentActivities) {
         postBody postBody = format.loot(activity, name, id, items, messageCollector, recentActivities);
-        postRequest(postBody, "/loot");
+        submitRequest(postBody, "/loot");
     }
 
     private void getRequest(String route) {
@@ -223,7 +242,10 @@ public class PokescapeClient {
         if (u == null) { log.info("Malformed webhook url {}", url); return; }
 
         // Build the request
-        Request request = new Request.Builder().url(url).build();
+        // The status validator lets an unchanged status come back as a 304 without a body
+        Request.Builder requestBuilder = new Request.Builder().url(url);
+        statusResponse.addValidator(requestBuilder);
+        Request request = requestBuilder.build();
 
         // Send the request
         okHttpClient.newCall(request).enqueue(new Callback() {
@@ -242,20 +264,15 @@ public class PokescapeClient {
             @Override
             public void onResponse(Call call, Response response) {
                 try {
-                    JsonObject responseBody;
-                    try { responseBody = GSON.fromJson(response.body() != null ? response.body().string() : null, JsonObject.class); }
-                    catch (Exception e) { responseBody = new JsonObject(); }
+                    // On a 304 the last status body still applies, the panel may have been rebuilt since so show it again
+                    apiResponse responseBody = statusResponse.read(response);
 
                     // Update the panel to reflect the server status
-                    if (response.code() / 100 != 2) panel.setServerStatusText(2);
+                    if (response.code() / 100 != 2 && response.code() != 304) panel.setServerStatusText(2);
                     else panel.setServerStatusText(1);
 
                     // Update the panel with any annoucements and/or special status from the server
-                    if (responseBody.has("serverMessage") && !responseBody.get("serverMessage").isJsonNull()) {
-                        String serverMessage = responseBody.get("serverMessage").getAsString();
-                        int serverStatus = (responseBody.has("serverStatus") && !responseBody.get("serverStatus").isJsonNull()) ? responseBody.get("serverStatus").getAsInt() : 1;
-                        if (serverMessage != null) panel.setServerAnnoucement(serverStatus, serverMessage);
-                    }
+                    showAnnouncement(responseBody);
                 } catch (Exception e) {
                     log.debug("Error processing response");
                 } finally {
@@ -269,189 +286,292 @@ public class PokescapeClient {
         postRequest(postBody, null, route);
     }
 
-    private void postRequest(postBody postBody, byte[] screenshot, String route) {
+    private void postRequest(postBody postBody, screenshotPipeline.encoded screenshot, String route) {
+        // A sync names the versions of the sections it already holds, so an up to date cache gets a 304 without a body
+        String validator = route.equals("/sync") ? syncValidator(cacheManifest, postBody.getSyncSections()) : null;
+        // The body is serialized as OkHttp writes the request, off the calling thread
+        MultipartBody.Builder requestBodyBuilder = new MultipartBody.Builder().setType(MultipartBody.FORM);
+        encoder.addPayload(requestBodyBuilder, postBody);
+        sendPost(route, requestBodyBuilder, screenshot, validator, null, new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                handleFailure();
+            }
+            @Override
+            public void onResponse(Call call, Response response) {
+                handleResponse(postBody, route, response, true);
+            }
+        });
+    }
+
+    // Loot and event submissions are written to the outbox before they are sent and acknowledged once the server answers
+    // 5xx responses and failed connections leave the submission in the outbox to be replayed later
+    // The payload is serialized on the outbox thread when it's recorded, not on the calling thread
+    private void submitRequest(postBody postBody, String route) {
+        outbox.append(route, () -> postBodyWriter.toJson(postBody), submission -> {
+            String payload = submission.getPayload();
+            batcher.submit(route, submission.getKey(), payload, () -> sendSubmission(postBody, route, payload, submission), new submissionBatcher.resultHandler() {
+                @Override
+                public void onResult(int code, apiResponse responseBody) {
+                    completeSubmission(postBody, route, submission, code, responseBody);
+                }
+                @Override
+                public void onFailure() {
+                    outbox.release(submission);
+                    handleFailure();
+                }
+            });
+        });
+    }
+
+    private void sendSubmission(postBody postBody, String route, String payload, submissionOutbox.entry submission) {
+        long sentAt = System.currentTimeMillis();
+        boolean sent = sendPost(route, payload, submission.getKey(), new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                outbox.release(submission);
+                handleFailure();
+            }
+            @Override
+            public void onResponse(Call call, Response response) {
+                batcher.recordRoundTrip(System.currentTimeMillis() - sentAt);
+                try {
+                    completeSubmission(postBody, route, submission, response.code(), apiResponse.read(response));
+                } finally {
+                    response.close();
+                }
+            }
+        });
+        if (!sent) outbox.release(submission);
+    }
+
+    private void completeSubmission(postBody postBody, String route, submissionOutbox.entry submission, int code, apiResponse responseBody) {
+        boolean delivered = code < 500;
+        if (delivered) outbox.ack(submission);
+        else outbox.release(submission);
+        handleResponse(postBody, route, code, responseBody, true);
+        if (delivered) replayOutbox();
+    }
+
+    // Resends unacknowledged submissions one at a time, oldest first
+    public void replayOutbox() {
+        outbox.replay(this::replaySubmission);
+    }
+
+    private void replaySubmission(submissionOutbox.entry submission) {
+        boolean sent = sendPost(submission.getRoute(), submission.getPayload(), submission.getKey(), new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                outbox.replayFinished(submission, false);
+                handleFailure();
+            }
+            @Override
+            public void onResponse(Call call, Response response) {
+                boolean delivered = response.code() < 500;
+                outbox.replayFinished(submission, delivered);
+                handleResponse(null, submission.getRoute(), response, false);
+                if (delivered) replayOutbox();
+            }
+        });
+        if (!sent) outbox.replayFinished(submission, false);
+    }
+
+    // Submissions send their outbox key so the server can drop a retry of a submission it already stored
+    private boolean sendPost(String route, String payload, String idempotencyKey, Callback callback) {
+        MultipartBody.Builder requestBodyBuilder = new MultipartBody.Builder().setType(MultipartBody.FORM);
+        encoder.addPayload(requestBodyBuilder, payload);
+        return sendPost(route, requestBodyBuilder, null, null, idempotencyKey, callback);
+    }
+
+    private boolean sendPost(String route, MultipartBody.Builder requestBodyBuilder, screenshotPipeline.encoded screenshot, String validator, String idempotencyKey, Callback callback) {
         // Validate the webhook path and url
         String url = API_ENDPOINT;
-        if (Strings.isNullOrEmpty(url) || route == null) return;
+        if (Strings.isNullOrEmpty(url) || route == null) return false;
         else url = API_ENDPOINT + route;
         HttpUrl u = HttpUrl.parse(url);
-        if (u == null) { log.info("Malformed webhook url {}", url); return; }
-
-        // Build the payload body
-        MultipartBody.Builder requestBodyBuilder = new MultipartBody.Builder()
-                .setType(MultipartBody.FORM)
-                .addFormDataPart("payload_json", GSON.toJson(postBody));
+        if (u == null) { log.info("Malformed webhook url {}", url); return false; }
 
         // Add formdata to the payload if a screenshot was taken
         if (screenshot != null) {
-            requestBodyBuilder.addFormDataPart("file", "image.png",
-                    RequestBody.create(MediaType.parse("image/png"), screenshot));
+            requestBodyBuilder.addFormDataPart("file", screenshot.getFileName(),
+                    RequestBody.create(MediaType.parse(screenshot.getMediaType()), screenshot.getData()));
         }
 
         // Build the request
         MultipartBody requestBody = requestBodyBuilder.build();
-        Request request = new Request.Builder().url(url).post(requestBody).build();
+        Request.Builder requestBuilder = new Request.Builder().url(url).post(requestBody);
+        if (validator != null) requestBuilder.header("If-None-Match", validator);
+        if (idempotencyKey != null) requestBuilder.header("Idempotency-Key", idempotencyKey);
+        Request request = requestBuilder.build();
 
         // Send the request
-        okHttpClient.newCall(request).enqueue(new Callback() {
-            // If the request doesn't hit the server, clear the server+team info in the panel
-            @Override
-            public void onFailure(Call call, IOException e) {
-                try { throw new ConnectException("Unreachable"); }
-                catch (ConnectException c) {
-                    panel.setServerStatusText(0);
-                    panel.setServerAnnoucement(0, "");
-                    panel.setPokescapeTeam("", "");
-                    panel.setTotalLevel("");
-                    panel.setDexCount("");
-                }
-            }
-            // If the request is successful, parse the response
-            @Override
-            public void onResponse(Call call, Response response) {
-                try {
-                    JsonObject responseBody;
-                    try { responseBody = GSON.fromJson(response.body() != null ? response.body().string() : null, JsonObject.class);}
-                    catch (Exception e) { responseBody = new JsonObject(); }
-
-                    // Update the server status in the panel to reflect the success/failure of the request
-                    if (response.code() / 100 != 2) {
-                        panel.setServerStatusText(2);
-                        panel.setPokescapeTeam("", "");
-                        panel.setTotalLevel("");
-                        panel.setDexCount("");
-                    } else panel.setServerStatusText(1);
-
-                    // Update the server annoucement in the side panel
-                    if (responseBody.has("serverMessage") && !responseBody.get("serverMessage").isJsonNull()) {
-                        String serverMessage = responseBody.get("serverMessage").getAsString();
-                        int serverStatus = (responseBody.has("serverStatus") && !responseBody.get("serverStatus").isJsonNull()) ? responseBody.get("serverStatus").getAsInt() : 1;
-                        if (serverMessage != null) panel.setServerAnnoucement(serverStatus, serverMessage);
-                    }
+        okHttpClient.newCall(request).enqueue(callback);
+        return true;
+    }
 
-                    // If there's a help message for the player, print it to their chatbox
-                    if (responseBody.has("localChatMsg") && !responseBody.get("localChatMsg").isJsonNull()) {
-                        JsonArray messageStructure = responseBody.get("localChatMsg").getAsJsonArray();
-                        if (messageStructure.isJsonArray()) utils.sendLocalChatMsg(messageStructure);
-                    }
+    // Compiles the synced sections straight from their JSON text and returns the ones that were applied
+    // Activities are the exception, the goal tracking reads them as a tree
+    private Map<String, String> applySyncSections(apiResponse sync, List<String> sections) {
+        Map<String, String> applied = new LinkedHashMap<>();
+        if (sync.getPets() != null && syncSection(sections, "pets")) {
+            format.setPets(petIndex.compile(sync.getPets()));
+            applied.put("pets", sync.getPets());
+        }
+        if (sync.getEvents() != null && syncSection(sections, "events")) {
+            plugin.setGameEvents(eventIndex.compile(sync.getEvents(), "gameEvent"));
+            applied.put("events", sync.getEvents());
+        }
+        if (sync.getActivities() != null && syncSection(sections, "activities")) {
+            plugin.setGameActivities(GSON.fromJson(sync.getActivities(), JsonObject.class));
+            applied.put("activities", sync.getActivities());
+        }
+        if (sync.getAllowblock() != null && syncSection(sections, "allowblock")) {
+            plugin.setAllowBlockList(allowBlockIndex.compile(sync.getAllowblock()));
+            applied.put("allowblock", sync.getAllowblock());
+        }
+        return applied;
+    }
 
-                    // Reinitialize SSE
-                    if (responseBody.has("initSSE") && !responseBody.get("initSSE").isJsonNull()) {
-                        if (sseHandler != null) sseHandler.cancel();
-                        sseHandler = null;
-                        initSSE();
-                    }
+    // Applies the sync bundle saved by the last session, the next /profile validates it against the server's manifest
+    public void loadSyncCache() {
+        long start = System.nanoTime();
+        Map<String, String> cached = cache.load();
+        if (cached == null) return;
+        applySyncSections(apiResponse.ofSections(cached), null);
+        cacheManifest = syncCache.getManifest(cached);
+        log.debug("Loaded sync cache in {}ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
 
-                    // Update the side panel with the player's team info and verification status
-                    if (route.equals("/profile") && responseBody.has("teamName") && responseBody.has("teamColor")) {
-                        if (!responseBody.get("teamName").isJsonNull() && !responseBody.get("teamColor").isJsonNull()) {
-                            String teamName = responseBody.get("teamName").getAsString();
-                            String teamColor = responseBody.get("teamColor").getAsString();
-                            panel.setPokescapeTeam(teamName, teamColor);
-                        }
-                        if (responseBody.has("verification") && !responseBody.get("verification").isJsonNull()) {
-                            JsonObject verification = responseBody.get("verification").getAsJsonObject();
-                            boolean tempoVerification = verification.get("tempoross").getAsBoolean();
-                            boolean gotrVerification = verification.get("gotr").getAsBoolean();
-                            panel.setTemporossVerification(tempoVerification);
-                            panel.setGotrVerification(gotrVerification);
-                        }
-                        if (responseBody.has("goals") && !responseBody.get("goals").isJsonNull()) {
-                            // TODO: Set the research description in the panel
-                            goals.setGoals(responseBody.get("goals").getAsJsonArray());
-                        }
-                        if (responseBody.has("totalLevel") && !responseBody.get("totalLevel").isJsonNull()) {
-                            String totalLevel = responseBody.get("totalLevel").getAsString();
-                            panel.setTotalLevel(totalLevel);
-                        }
-                        if (responseBody.has("dexCount") && !responseBody.get("dexCount").isJsonNull()) {
-                            String dexCount = responseBody.get("dexCount").getAsString();
-                            panel.setDexCount(dexCount);
-                        }
-                        if (responseBody.has("eventPassword") && !responseBody.get("eventPassword").isJsonNull())
-                            config.setEventPassword(responseBody.get("eventPassword").getAsString());
-                        // Request a sync if the manifest is missing or old
-                        if (responseBody.has("manifest") && !responseBody.get("manifest").isJsonNull()) {
-                            if (cacheManifest == null || !cacheManifest.toString().equals(responseBody.get("manifest").getAsJsonObject().toString())) {
-                                cacheManifest = responseBody.get("manifest").getAsJsonObject();
-                                sync();
-                            }
-                        }
-                        // Initialize the SSE connection if it hasn't yet been created
-                        if (sseHandler == null) initSSE();
-                    }
+    private static boolean syncSection(List<String> sections, String section) {
+        return sections == null || sections.contains(section);
+    }
 
-                    // Update pet and events after a sync
-                    if (route.equals("/sync")) {
-                        if (responseBody.has("pets") && !responseBody.get("pets").isJsonNull())
-                            format.setPets(responseBody.get("pets").getAsJsonObject());
-                        if (responseBody.has("events") && !responseBody.get("events").isJsonNull())
-                            plugin.setGameEvents(responseBody.get("events").getAsJsonObject());
-                        if (responseBody.has("activities") && !responseBody.get("activities").isJsonNull())
-                            plugin.setGameActivities(responseBody.get("activities").getAsJsonObject());
-                        if (responseBody.has("allowblock") && !responseBody.get("allowblock").isJsonNull())
-                            plugin.setAllowBlockList(responseBody.get("allowblock").getAsJsonObject());
-                    }
+    // If the request doesn't hit the server, clear the server+team info in the panel
+    private void handleFailure() {
+        try { throw new ConnectException("Unreachable"); }
+        catch (ConnectException c) {
+            panel.setServerStatusText(0);
+            panel.setServerAnnoucement(0, "");
+            panel.setPokescapeTeam("", "");
+            panel.setTotalLevel("");
+            panel.setDexCount("");
+        }
+    }
 
-                    // Update the side panel with minigame verification status
-                    if (route.equals("/validation") && responseBody.has("activity") && responseBody.has("valid")) {
-                        if (!responseBody.get("activity").isJsonNull() && !responseBody.get("valid").isJsonNull()) {
-                            String activity = responseBody.get("activity").getAsString();
-                            boolean validity = responseBody.get("valid").getAsBoolean();
-                            if (activity.equals("tempoross")) panel.setTemporossVerification(validity);
-                            if (activity.equals("gotr")) panel.setGotrVerification(validity);
-                        }
-                    }
+    // If the request is successful, parse the response
+    // Live responses may print chat messages and request screenshots, replayed responses only update the panel state
+    private void handleResponse(postBody postBody, String route, Response response, boolean live) {
+        try {
+            // The cached sections are still current, skip parsing and rebuilding the indexes
+            if (route.equals("/sync") && response.code() == 304) {
+                syncNotModified(postBody);
+                return;
+            }
+            handleResponse(postBody, route, response.code(), apiResponse.read(response), live);
+        } finally {
+            response.close();
+        }
+    }
 
-                    // When the server successfully validates loot it may send back a 210. This means take a screenshot!
-                    if (response.code() == 210) {
-                        // Add validation from this response into the body of the screenshot request
-                        if (responseBody.has("validEvents") && !responseBody.get("validEvents").isJsonNull()) {
-                            postBody.setValidEvents(responseBody.get("validEvents").getAsJsonArray());
-                        }
-                        // If a delay is specified, wait the delay amount before taking a screenshot. Otherwise, take the screenshot
-                        if (responseBody.has("delayScreenshot") && !responseBody.get("delayScreenshot").isJsonNull()) {
-                            int delay = responseBody.get("delayScreenshot").getAsInt();
-                            scheduler.schedule(() -> requestScreenshot(postBody, route), delay, TimeUnit.MILLISECONDS);
-                        } else {
-                            requestScreenshot(postBody, route);
-                        }
+    private void handleResponse(postBody postBody, String route, int code, apiResponse responseBody, boolean live) {
+        try {
+            // Update the server status in the panel to reflect the success/failure of the request
+            if (code / 100 != 2) {
+                panel.setServerStatusText(2);
+                panel.setPokescapeTeam("", "");
+                panel.setTotalLevel("");
+                panel.setDexCount("");
+            } else panel.setServerStatusText(1);
+
+            // Update the server annoucement in the side panel
+            showAnnouncement(responseBody);
+
+            // If there's a help message for the player, print it to their chatbox
+            if (live && responseBody.getLocalChatMsg() != null) utils.sendLocalChatMsg(responseBody.getLocalChatMsg());
+
+            // Reinitialize SSE
+            if (responseBody.isInitSSE()) initSSE();
+
+            // Update the side panel with the player's team info and verification status
+            if (route.equals("/profile")) {
+                if (responseBody.getTeamName() != null && responseBody.getTeamColor() != null) panel.setPokescapeTeam(responseBody.getTeamName(), responseBody.getTeamColor());
+                if (responseBody.getTemporossVerified() != null) panel.setTemporossVerification(responseBody.getTemporossVerified());
+                if (responseBody.getGotrVerified() != null) panel.setGotrVerification(responseBody.getGotrVerified());
+                // TODO: Set the research description in the panel
+                if (responseBody.getGoals() != null) goals.setGoals(responseBody.getGoals());
+                if (responseBody.getTotalLevel() != null) panel.setTotalLevel(responseBody.getTotalLevel());
+                if (responseBody.getDexCount() != null) panel.setDexCount(responseBody.getDexCount());
+                if (responseBody.getEventPassword() != null) config.setEventPassword(responseBody.getEventPassword());
+                // Request a sync if the manifest is missing or old
+                // Only the sections with a new version are requested when the manifest is keyed by section
+                JsonObject manifest = responseBody.getManifest();
+                if (manifest != null) {
+                    List<String> changed = changedSections(cacheManifest, manifest);
+                    if (changed == null) {
+                        if (cacheManifest == null || !cacheManifest.equals(manifest)) sync(null, manifest);
+                    } else if (!changed.isEmpty()) {
+                        sync(changed, manifest);
                     }
-                } catch (Exception e) {
-                    log.debug("Error processing response", e);
-                } finally {
-                    response.close();
                 }
+                // Coalesce submissions into /batch requests if the server supports it
+                if (responseBody.getBatchSubmissions() != null) batcher.setCapability(responseBody.getBatchSubmissions(), responseBody.getBatchWindow());
+                // Compress larger payloads if the server accepts them
+                if (responseBody.getGzipPayload() != null) encoder.setGzipPayload(responseBody.getGzipPayload());
+                // Send screenshots as JPEG if the server accepts them
+                if (responseBody.getJpegScreenshots() != null) screenshots.setJpegAccepted(responseBody.getJpegScreenshots());
+                // Initialize the SSE connection if it hasn't yet been created
+                if (!sse.isRunning()) initSSE();
+                // The server is reachable again, send anything left over in the outbox
+                replayOutbox();
             }
-        });
-    }
 
-    private void requestScreenshot(postBody postBody, String route) {
-        drawManager.requestNextFrameListener(image -> {
-            BufferedImage bufferedImage = (BufferedImage) image;
-            // Resize the dimensions of the screenshot to 800px before sending it off
-            bufferedImage = resizeScreenshot(bufferedImage, 800);
-            byte[] imageBytes = null;
-            try {
-                imageBytes = convertImageToByteArray(bufferedImage);
-            } catch (IOException e) {
-                log.error("Error converting image to byte array", e);
+            // Update pet and events after a sync
+            // Sections that weren't requested keep their compiled indexes
+            if (route.equals("/sync")) {
+                Map<String, String> applied = applySyncSections(responseBody, postBody.getSyncSections());
+                if (code / 100 == 2) {
+                    if (postBody.getSyncManifest() != null) cacheManifest = postBody.getSyncManifest();
+                    cache.update(applied, postBody.getSyncManifest());
+                }
             }
-            if (imageBytes != null) postRequest(postBody, imageBytes, route);
-        });
+
+            // Update the side panel with minigame verification status
+            if (route.equals("/validation") && responseBody.getActivity() != null && responseBody.getValid() != null) {
+                String activity = responseBody.getActivity();
+                if (activity.equals("tempoross")) panel.setTemporossVerification(responseBody.getValid());
+                if (activity.equals("gotr")) panel.setGotrVerification(responseBody.getValid());
+            }
+
+            // When the server successfully validates loot it may send back a 210. This means take a screenshot!
+            // Replayed submissions are stale by the time they land, so they are never screenshotted
+            if (live && code == 210) {
+                // Add validation from this response into the body of the screenshot request
+                if (responseBody.getValidEvents() != null) postBody.setValidEvents(responseBody.getValidEvents());
+                // The server may ask for only parts of the screen, such as the chatbox or a loot widget
+                List<String> cropRegions = responseBody.getCropRegions();
+                // If a delay is specified, wait the delay amount before taking a screenshot. Otherwise, take the screenshot
+                if (responseBody.getDelayScreenshot() != null) {
+                    screenshots.captureLater(() -> requestScreenshot(postBody, route, cropRegions), responseBody.getDelayScreenshot());
+                } else {
+                    requestScreenshot(postBody, route, cropRegions);
+                }
+            }
+        } catch (Exception e) {
+            log.debug("Error processing response", e);
+        }
     }
 
-    // Takes the widest dimension of the screenshot and scales it down proportionally
-    public static BufferedImage resizeScreenshot(final BufferedImage screenshot, final int maxSize) {
-        final Image resizedImg;
-        if (screenshot.getWidth() > screenshot.getHeight()) resizedImg = screenshot.getScaledInstance(maxSize, -1, Image.SCALE_SMOOTH);
-        else resizedImg = screenshot.getScaledInstance(-1, maxSize, Image.SCALE_SMOOTH);
-        return ImageUtil.bufferedImageFromImage(resizedImg);
+    private void showAnnouncement(apiResponse responseBody) {
+        if (responseBody.getServerMessage() == null) return;
+        int serverStatus = (responseBody.getServerStatus() != null) ? responseBody.getServerStatus() : 1;
+        panel.setServerAnnoucement(serverStatus, responseBody.getServerMessage());
     }
 
-    private static byte[] convertImageToByteArray(BufferedImage bufferedImage) throws IOException {
-        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-        ImageIO.write(bufferedImage, "png", byteArrayOutputStream);
-        return byteArrayOutputStream.toByteArray();
+    private void requestScreenshot(postBody postBody, String route, List<String> cropRegions) {
+        if (cropRegions == null || cropRegions.isEmpty()) {
+            screenshots.capture(screenshot -> postRequest(postBody, screenshot, route));
+        } else {
+            screenshots.capture(() -> utils.getCropRegions(cropRegions), screenshot -> postRequest(postBody, screenshot, route));
+        }
     }
 }
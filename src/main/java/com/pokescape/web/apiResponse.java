@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2024, Quo <https://github.com/Quoded>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.pokescape.web;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.pokescape.util.jsonStream;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import static net.runelite.http.api.RuneLiteAPI.GSON;
+
+// Fields the server may send back from any route, read in one pass straight off the response body
+// The /sync sections are copied out as JSON text, which their indexes compile from and the disk cache stores as is
+// Activities are parsed into a tree when they're applied, and goals, the manifest and chat messages are read as trees,
+// because the goal tracking and the request bodies that use them walk the tree
+// Unknown fields are skipped without being materialized. Absent or null fields stay null
+@Slf4j
+@Getter
+class apiResponse {
+    // Common
+    private String serverMessage;
+    private Integer serverStatus;
+    private JsonArray localChatMsg;
+    private boolean initSSE;
+    // /profile
+    private String teamName;
+    private String teamColor;
+    private Boolean temporossVerified;
+    private Boolean gotrVerified;
+    private JsonArray goals;
+    private String totalLevel;
+    private String dexCount;
+    private String eventPassword;
+    private JsonObject manifest;
+    private Boolean batchSubmissions;
+    private Integer batchWindow;
+    private Boolean gzipPayload;
+    private Boolean jpegScreenshots;
+    // /sync, as JSON text
+    private String pets;
+    private String events;
+    private String activities;
+    private String allowblock;
+    // /validation
+    private String activity;
+    private Boolean valid;
+    // 210 screenshot requests
+    private JsonArray validEvents;
+    private Integer delayScreenshot;
+    private List<String> cropRegions;
+    // /batch
+    private Integer code;
+    private List<apiResponse> results;
+
+    static final apiResponse EMPTY = new apiResponse();
+
+    // Returns EMPTY if the body is missing or malformed, matching the old fallback to an empty JsonObject
+    static apiResponse read(Response response) {
+        ResponseBody body = response.body();
+        if (body == null) return EMPTY;
+        try (JsonReader in = new JsonReader(body.charStream())) {
+            return read(in);
+        } catch (Exception e) {
+            log.debug("Unable to parse response", e);
+            return EMPTY;
+        }
+    }
+
+    // Wraps sync sections loaded from the disk cache so they apply the same way as a /sync response
+    static apiResponse ofSections(Map<String, String> bundle) {
+        apiResponse sections = new apiResponse();
+        sections.pets = bundle.get("pets");
+        sections.events = bundle.get("events");
+        sections.activities = bundle.get("activities");
+        sections.allowblock = bundle.get("allowblock");
+        return sections;
+    }
+
+    private static apiResponse read(JsonReader in) throws IOException {
+        apiResponse response = new apiResponse();
+        if (in.peek() != JsonToken.BEGIN_OBJECT) {
+            in.skipValue();
+            return response;
+        }
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "serverMessage": response.serverMessage = in.nextString(); break;
+                case "serverStatus": response.serverStatus = in.nextInt(); break;
+                case "localChatMsg": response.localChatMsg = GSON.fromJson(in, JsonArray.class); break;
+                case "initSSE": in.skipValue(); response.initSSE = true; break;
+                case "teamName": response.teamName = in.nextString(); break;
+                case "teamColor": response.teamColor = in.nextString(); break;
+                case "verification": readVerification(in, response); break;
+                case "goals": response.goals = GSON.fromJson(in, JsonArray.class); break;
+                case "totalLevel": response.totalLevel = in.nextString(); break;
+                case "dexCount": response.dexCount = in.nextString(); break;
+                case "eventPassword": response.eventPassword = in.nextString(); break;
+                case "manifest": response.manifest = GSON.fromJson(in, JsonObject.class); break;
+                case "batchSubmissions": response.batchSubmissions = readBoolean(in); break;
+                case "batchWindow": response.batchWindow = in.nextInt(); break;
+                case "gzipPayload": response.gzipPayload = readBoolean(in); break;
+                case "jpegScreenshots": response.jpegScreenshots = readBoolean(in); break;
+                case "pets": response.pets = readSection(in); break;
+                case "events": response.events = readSection(in); break;
+                case "activities": response.activities = readSection(in); break;
+                case "allowblock": response.allowblock = readSection(in); break;
+                case "activity": response.activity = in.nextString(); break;
+                case "valid": response.valid = readBoolean(in); break;
+                case "validEvents": response.validEvents = GSON.fromJson(in, JsonArray.class); break;
+                case "delayScreenshot": response.delayScreenshot = in.nextInt(); break;
+                case "cropRegions": response.cropRegions = readStrings(in); break;
+                case "code": response.code = in.nextInt(); break;
+                case "results": response.results = readResults(in); break;
+                default: in.skipValue();
+            }
+        }
+        in.endObject();
+        return response;
+    }
+
+    // Sections are always objects, anything else is skipped like a missing section
+    private static String readSection(JsonReader in) throws IOException {
+        if (in.peek() != JsonToken.BEGIN_OBJECT) {
+            in.skipValue();
+            return null;
+        }
+        return jsonStream.readRaw(in);
+    }
+
+    private static void readVerification(JsonReader in, apiResponse response) throws IOException {
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (in.peek() == JsonToken.NULL) { in.nextNull(); continue; }
+            if (name.equals("tempoross")) response.temporossVerified = readBoolean(in);
+            else if (name.equals("gotr")) response.gotrVerified = readBoolean(in);
+            else in.skipValue();
+        }
+        in.endObject();
+    }
+
+    private static List<apiResponse> readResults(JsonReader in) throws IOException {
+        List<apiResponse> results = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            if (in.peek() == JsonToken.NULL) { in.nextNull(); results.add(null); }
+            else results.add(read(in));
+        }
+        in.endArray();
+        return results;
+    }
+
+    private static List<String> readStrings(JsonReader in) throws IOException {
+        List<String> values = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            if (in.peek() == JsonToken.NULL) in.nextNull();
+            else values.add(in.nextString());
+        }
+        in.endArray();
+        return values;
+    }
+
+    // Accepts "true"/"false" strings as well, like JsonPrimitive.getAsBoolean
+    private static boolean readBoolean(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.STRING) return Boolean.parseBoolean(in.nextString());
+        return in.nextBoolean();
+    }
+}
@@ -26,6 +26,7 @@ package com.pokescape.web;
 
 import com.pokescape.PokescapeConfig;
 import com.pokescape.util.Utils;
+import com.pokescape.util.petIndex;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.common.collect.ImmutableSet;
@@ -51,7 +52,7 @@ public class formatBody {
     private @Inject PokescapeConfig config;
     private @Inject Utils utils;
 
-    private JsonObject allPets;
+    private petIndex allPets;
     private static final ImmutableSet<String> PET_MESSAGES = ImmutableSet.of(
             "You have a funny feeling like you're being followed.",
             "You feel something weird sneaking into your backpack.",
@@ -61,7 +62,7 @@ public class formatBody {
     private static final int ALL_FILTER = 10616837;
     private static final int GAME_FILTER = 10616840;
 
-    public void setPets(JsonObject pets) {
+    public void setPets(petIndex pets) {
         allPets = pets;
     }
 
@@ -92,7 +93,7 @@ public class formatBody {
         EnumSet<WorldType> worldType = client.getWorldType();
 
         // Populate body with game messages
-        List<String> gameMessages = new ArrayList<>(messageCollector);
+        List<String> gameMessages = messageCollector;
 
         // If other information is present, send it in the request
         if (eventInfo != null && !eventInfo.entrySet().isEmpty()) postBody.setEventInfo(eventInfo);
@@ -133,17 +134,15 @@ public class formatBody {
         utils.updateLootInfo(recentActivities, npcName, lootName, lootID, lootQuantity);
 
         // Populate body with game messages
-        List<String> gameMessages = new ArrayList<>(messageCollector);
+        List<String> gameMessages = messageCollector;
 
         // If a pet message is found add the pet item associated with the npc to the loot received
         for (String message : gameMessages) {
             if (PET_MESSAGES.contains(message)) {
-                if (allPets != null && allPets.has(npcName)) {
-                    JsonObject petInfo = allPets.get(npcName).getAsJsonObject();
-                    String petName = petInfo.get("petName").getAsString();
-                    Integer petID = petInfo.get("petID").getAsInt();
-                    lootName.add(petName);
-                    lootID.add(petID);
+                petIndex.pet pet = (allPets != null) ? allPets.get(npcName) : null;
+                if (pet != null) {
+                    lootName.add(pet.getPetName());
+                    lootID.add(pet.getPetID());
                     lootQuantity.add(1);
                     break;
                 }
@@ -184,7 +183,8 @@ public class formatBody {
             for (JsonElement activity : activities) {
                 String activityName = activity.getAsString();
                 if (recentActivities.has(activityName) && !recentActivities.get(activityName).isJsonNull()) {
-                    filteredActivities.add(activityName, recentActivities.get(activityName));
+                    // Copied so the body can be serialized off the client thread while recentActivities keeps changing
+                    filteredActivities.add(activityName, recentActivities.get(activityName).deepCopy());
                 }
             }
         }
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2024, Quo <https://github.com/Quoded>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.pokescape.web;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+
+// Scales packed RGB pixels so the widest side matches a fixed size, like getScaledInstance with -1 for the other side
+// Large frames are box filtered down by halves in place, the remaining step is bilinear into a reused buffer
+// Not thread safe, each encoder thread owns its own scaler
+class imageScaler {
+    private static final DirectColorModel RGB = new DirectColorModel(24, 0xff0000, 0xff00, 0xff);
+
+    private int[] scaled = new int[0];
+    private int[] columns = new int[0];
+    private int[] columnWeights = new int[0];
+
+    // The source pixels are overwritten. The returned image shares the scaler's buffer and is valid until the next call
+    BufferedImage fit(int[] pixels, int width, int height, int maxSize) {
+        int targetWidth, targetHeight;
+        if (width > height) {
+            targetWidth = maxSize;
+            targetHeight = Math.max(1, height * maxSize / width);
+        } else {
+            targetWidth = Math.max(1, width * maxSize / height);
+            targetHeight = maxSize;
+        }
+
+        while (width / 2 >= targetWidth && height / 2 >= targetHeight) {
+            halve(pixels, width, height);
+            width /= 2;
+            height /= 2;
+        }
+
+        if (scaled.length < targetWidth * targetHeight) scaled = new int[targetWidth * targetHeight];
+        bilinear(pixels, width, height, scaled, targetWidth, targetHeight);
+        return wrap(scaled, targetWidth, targetHeight);
+    }
+
+    // Averages each 2x2 block. Every output pixel is written at or before the lowest index it reads, so this works in place
+    private static void halve(int[] pixels, int width, int height) {
+        int halfWidth = width / 2;
+        int halfHeight = height / 2;
+        for (int y = 0; y < halfHeight; y++) {
+            int row = 2 * y * width;
+            int out = y * halfWidth;
+            for (int x = 0; x < halfWidth; x++) {
+                int i = row + 2 * x;
+                int a = pixels[i], b = pixels[i + 1], c = pixels[i + width], d = pixels[i + width + 1];
+                // Red and blue are summed side by side, 4 * 255 still fits in the gap between them
+                int rb = (((a & 0xff00ff) + (b & 0xff00ff) + (c & 0xff00ff) + (d & 0xff00ff) + 0x20002) >>> 2) & 0xff00ff;
+                int g = (((a & 0xff00) + (b & 0xff00) + (c & 0xff00) + (d & 0xff00) + 0x200) >>> 2) & 0xff00;
+                pixels[out + x] = rb | g;
+            }
+        }
+    }
+
+    // Samples at pixel centers with 8 bit weights. Also handles upscaling small fixed mode frames
+    private void bilinear(int[] src, int width, int height, int[] dst, int targetWidth, int targetHeight) {
+        if (columns.length < targetWidth) {
+            columns = new int[targetWidth];
+            columnWeights = new int[targetWidth];
+        }
+        for (int x = 0; x < targetWidth; x++) {
+            double sx = Math.max(0, (x + 0.5) * width / targetWidth - 0.5);
+            int x0 = Math.min((int) sx, width - 1);
+            columns[x] = x0;
+            columnWeights[x] = (x0 < width - 1) ? (int) ((sx - x0) * 256) : 0;
+        }
+
+        for (int y = 0; y < targetHeight; y++) {
+            double sy = Math.max(0, (y + 0.5) * height / targetHeight - 0.5);
+            int y0 = Math.min((int) sy, height - 1);
+            int fy = (y0 < height - 1) ? (int) ((sy - y0) * 256) : 0;
+            int top = y0 * width;
+            int bottom = (y0 < height - 1) ? top + width : top;
+            int out = y * targetWidth;
+            for (int x = 0; x < targetWidth; x++) {
+                int x0 = columns[x];
+                int fx = columnWeights[x];
+                int x1 = (fx > 0) ? x0 + 1 : x0;
+                dst[out + x] = blend(src[top + x0], src[top + x1], src[bottom + x0], src[bottom + x1], fx, fy);
+            }
+        }
+    }
+
+    private static int blend(int p00, int p01, int p10, int p11, int fx, int fy) {
+        int w00 = (256 - fx) * (256 - fy);
+        int w01 = fx * (256 - fy);
+        int w10 = (256 - fx) * fy;
+        int w11 = fx * fy;
+        int r = ((p00 >> 16 & 0xff) * w00 + (p01 >> 16 & 0xff) * w01 + (p10 >> 16 & 0xff) * w10 + (p11 >> 16 & 0xff) * w11 + 32768) >> 16;
+        int g = ((p00 >> 8 & 0xff) * w00 + (p01 >> 8 & 0xff) * w01 + (p10 >> 8 & 0xff) * w10 + (p11 >> 8 & 0xff) * w11 + 32768) >> 16;
+        int b = ((p00 & 0xff) * w00 + (p01 & 0xff) * w01 + (p10 & 0xff) * w10 + (p11 & 0xff) * w11 + 32768) >> 16;
+        return r << 16 | g << 8 | b;
+    }
+
+    static BufferedImage wrap(int[] pixels, int width, int height) {
+        DataBufferInt buffer = new DataBufferInt(pixels, width * height);
+        WritableRaster raster = Raster.createPackedRaster(buffer, width, height, width, RGB.getMasks(), null);
+        return new BufferedImage(RGB, raster, false, null);
+    }
+}
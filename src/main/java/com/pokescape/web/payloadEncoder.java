@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2024, Quo <https://github.com/Quoded>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.pokescape.web;
+
+import com.google.gson.stream.JsonWriter;
+import okhttp3.MediaType;
+import okhttp3.MultipartBody;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+
+import javax.inject.Singleton;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+// Adds the payload_json part to a multipart request, either from an already serialized payload or streamed from a postBody
+// When the server advertises gzipPayload in /profile, payloads above the threshold are sent gzipped as payload_json_gz instead
+@Singleton
+public class payloadEncoder {
+    private static final int GZIP_THRESHOLD = 1024;
+    private static final MediaType GZIP = MediaType.parse("application/gzip");
+
+    private volatile boolean gzipPayload;
+
+    public void setGzipPayload(boolean enabled) {
+        gzipPayload = enabled;
+    }
+
+    void addPayload(MultipartBody.Builder builder, String payload) {
+        if (gzipPayload && payload.length() >= GZIP_THRESHOLD) {
+            try {
+                builder.addFormDataPart("payload_json_gz", "payload.json.gz", RequestBody.create(GZIP, gzip(payload)));
+                return;
+            } catch (IOException ignored) {
+                // Fall back to the plain payload
+            }
+        }
+        builder.addFormDataPart("payload_json", payload);
+    }
+
+    // Streams the body into the request as it is written on the network thread, without building the JSON string first
+    // The size isn't known up front, so submissions carrying game messages or event info are the ones that get gzipped
+    void addPayload(MultipartBody.Builder builder, postBody body) {
+        boolean compress = gzipPayload && (body.getGameMsg() != null || body.getEventInfo() != null);
+        if (compress) builder.addFormDataPart("payload_json_gz", "payload.json.gz", new streamingBody(body, true));
+        else builder.addFormDataPart("payload_json", null, new streamingBody(body, false));
+    }
+
+    private static byte[] gzip(String payload) throws IOException {
+        byte[] json = payload.getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(json.length / 4);
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(json);
+        }
+        return compressed.toByteArray();
+    }
+
+    private static class streamingBody extends RequestBody {
+        private final postBody body;
+        private final boolean compress;
+
+        private streamingBody(postBody body, boolean compress) {
+            this.body = body;
+            this.compress = compress;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return compress ? GZIP : null;
+        }
+
+        // May be called more than once if the request is retried, so the body is written fresh every time
+        @Override
+        public void writeTo(BufferedSink sink) throws IOException {
+            OutputStream out = sink.outputStream();
+            GZIPOutputStream gzip = compress ? new GZIPOutputStream(out) : null;
+            JsonWriter writer = new JsonWriter(new OutputStreamWriter(compress ? gzip : out, StandardCharsets.UTF_8));
+            postBodyWriter.write(writer, body);
+            writer.flush();
+            // Finish rather than close so the request sink stays open for the rest of the multipart body
+            if (gzip != null) gzip.finish();
+        }
+    }
+}
@@ -55,4 +55,7 @@ class postBody {
     private List<String> gameMsg;
     private JsonObject eventInfo;
     private JsonArray validEvents;
+    private List<String> syncSections;
+    // Manifest the /sync request was made for, kept client side
+    private transient JsonObject syncManifest;
 }
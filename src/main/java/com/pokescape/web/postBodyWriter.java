@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2024, Quo <https://github.com/Quoded>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.pokescape.web;
+
+import com.google.gson.JsonElement;
+import com.google.gson.stream.JsonWriter;
+import net.runelite.api.WorldType;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.EnumSet;
+import java.util.List;
+import static net.runelite.http.api.RuneLiteAPI.GSON;
+
+// Writes a postBody field by field without reflection. Request bodies are only ever written, never read back
+// Produces the same values as GSON.toJson(postBody): fields in declaration order, null fields omitted, transient fields skipped
+// Unlike Gson's default, HTML characters in chat messages aren't escaped
+final class postBodyWriter {
+    private postBodyWriter() {}
+
+    static String toJson(postBody body) {
+        StringWriter out = new StringWriter();
+        try {
+            write(new JsonWriter(out), body);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return out.toString();
+    }
+
+    static void write(JsonWriter out, postBody body) throws IOException {
+        if (body == null) { out.nullValue(); return; }
+        out.beginObject();
+        string(out, "rsn", body.getRsn());
+        string(out, "clientHash", body.getClientHash());
+        string(out, "pluginVersion", body.getPluginVersion());
+        number(out, "currentWorld", body.getCurrentWorld());
+        worldTypes(out, body.getWorldTypes());
+        element(out, "recentActivities", body.getRecentActivities());
+        out.name("eventPasswordVisible").value(body.isEventPasswordVisible());
+        out.name("chatboxVisible").value(body.isChatboxVisible());
+        number(out, "widgetSprite", body.getWidgetSprite());
+        string(out, "triggerActivity", body.getTriggerActivity());
+        string(out, "channels", body.getChannels());
+        string(out, "validationData", body.getValidationData());
+        string(out, "npcName", body.getNpcName());
+        number(out, "npcID", body.getNpcID());
+        strings(out, "lootName", body.getLootName());
+        numbers(out, "lootID", body.getLootID());
+        numbers(out, "lootQuantity", body.getLootQuantity());
+        string(out, "gameEvent", body.getGameEvent());
+        strings(out, "gameMsg", body.getGameMsg());
+        element(out, "eventInfo", body.getEventInfo());
+        element(out, "validEvents", body.getValidEvents());
+        strings(out, "syncSections", body.getSyncSections());
+        out.endObject();
+    }
+
+    private static void string(JsonWriter out, String name, String value) throws IOException {
+        if (value != null) out.name(name).value(value);
+    }
+
+    private static void number(JsonWriter out, String name, Number value) throws IOException {
+        if (value != null) out.name(name).value(value);
+    }
+
+    // List elements keep Gson's behavior of writing nulls inside arrays
+    private static void strings(JsonWriter out, String name, List<String> values) throws IOException {
+        if (values == null) return;
+        out.name(name).beginArray();
+        for (String value : values) out.value(value);
+        out.endArray();
+    }
+
+    private static void numbers(JsonWriter out, String name, List<Integer> values) throws IOException {
+        if (values == null) return;
+        out.name(name).beginArray();
+        for (Integer value : values) out.value(value);
+        out.endArray();
+    }
+
+    private static void element(JsonWriter out, String name, JsonElement value) throws IOException {
+        if (value == null) return;
+        out.name(name);
+        GSON.toJson(value, out);
+    }
+
+    // Enum names, as Gson writes them
+    private static void worldTypes(JsonWriter out, EnumSet<WorldType> worldTypes) throws IOException {
+        if (worldTypes == null) return;
+        out.name("worldTypes").beginArray();
+        for (WorldType worldType : worldTypes) out.value(worldType.name());
+        out.endArray();
+    }
+}
@@ -0,0 +1,288 @@
+/*
+ * Copyright (c) 2024, Quo <https://github.com/Quoded>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.pokescape.web;
+
+import com.pokescape.PokescapeConfig;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.api.Client;
+import net.runelite.client.ui.DrawManager;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.awt.Image;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+// Captures screenshots for the server without stalling frame delivery
+// The frame listener only copies the frame's pixels into a pooled buffer, resizing and encoding happen on a background thread
+// Requests made before the next frame share one capture. Frames are dropped if the encoder falls behind
+// Requests with crop regions get a mosaic of just those regions stacked top to bottom, at native resolution unless it's over 800px
+@Slf4j
+@Singleton
+public class screenshotPipeline {
+    private static final int MAX_SIZE = 800;
+    private static final int MAX_QUEUED = 2;
+
+    private @Inject Client client;
+    private @Inject DrawManager drawManager;
+    private @Inject PokescapeConfig config;
+
+    private volatile ThreadPoolExecutor executor;
+    private ScheduledExecutorService delayed;
+    private volatile boolean jpegAccepted;
+    private final BlockingQueue<int[]> pool = new ArrayBlockingQueue<>(MAX_QUEUED + 1);
+    private List<request> waiting = new ArrayList<>();
+    // Only used from the encoder thread
+    private final imageScaler scaler = new imageScaler();
+
+    public screenshotPipeline() {
+    }
+
+    screenshotPipeline(Client client, DrawManager drawManager, PokescapeConfig config) {
+        this.client = client;
+        this.drawManager = drawManager;
+        this.config = config;
+    }
+
+    public synchronized void startUp() {
+        if (executor != null) return;
+        executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(MAX_QUEUED));
+        delayed = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    public synchronized void shutDown() {
+        if (executor == null) return;
+        executor.shutdownNow();
+        executor = null;
+        delayed.shutdownNow();
+        delayed = null;
+        waiting = new ArrayList<>();
+        pool.clear();
+    }
+
+    public void setJpegAccepted(boolean accepted) {
+        jpegAccepted = accepted;
+    }
+
+    // Runs the capture once the delay the server asked for has passed, dropped if the plugin shuts down first
+    public synchronized void captureLater(Runnable capture, long delayMs) {
+        if (delayed == null) return;
+        delayed.schedule(capture, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    // Hands the encoded image of the next frame to the upload
+    public void capture(Consumer<encoded> upload) {
+        capture(null, upload);
+    }
+
+    // Crops the next frame to the regions, resolved on the client thread as the frame is delivered
+    // Falls back to the whole frame if none of the regions are on screen
+    public void capture(Supplier<List<Rectangle>> regions, Consumer<encoded> upload) {
+        synchronized (this) {
+            if (executor == null) return;
+            waiting.add(new request(regions, upload));
+            // A frame listener is already registered, this request rides along with it
+            if (waiting.size() > 1) return;
+        }
+        drawManager.requestNextFrameListener(this::onFrame);
+    }
+
+    // Runs on the render path, keep this to a single pixel copy per capture
+    private void onFrame(Image image) {
+        List<request> requests;
+        synchronized (this) {
+            requests = waiting;
+            waiting = new ArrayList<>();
+        }
+        if (requests.isEmpty()) return;
+
+        // Requests that resolve to the same regions share a copy, as do all the whole-frame requests
+        BufferedImage frame = (BufferedImage) image;
+        List<Consumer<encoded>> uploads = new ArrayList<>();
+        Map<List<Rectangle>, List<Consumer<encoded>>> crops = new LinkedHashMap<>();
+        for (request request : requests) {
+            List<Rectangle> regions = (request.regions != null) ? regions(request.regions, frame) : null;
+            if (regions == null || regions.isEmpty()) uploads.add(request.upload);
+            else crops.computeIfAbsent(regions, k -> new ArrayList<>()).add(request.upload);
+        }
+
+        for (Map.Entry<List<Rectangle>, List<Consumer<encoded>>> crop : crops.entrySet()) {
+            List<Rectangle> regions = crop.getKey();
+            int width = 0;
+            int height = 0;
+            for (Rectangle region : regions) {
+                width = Math.max(width, region.width);
+                height += region.height;
+            }
+            int[] pixels = copyRegions(frame, regions, width, height, borrow(width * height));
+            submit(pixels, width, height, Math.max(width, height) > MAX_SIZE, crop.getValue());
+        }
+        if (uploads.isEmpty()) return;
+
+        int width = frame.getWidth();
+        int height = frame.getHeight();
+        int[] pixels = copyPixels(frame, borrow(width * height));
+        submit(pixels, width, height, true, uploads);
+    }
+
+    private void submit(int[] pixels, int width, int height, boolean resize, List<Consumer<encoded>> uploads) {
+        ThreadPoolExecutor encoder = executor;
+        try {
+            if (encoder == null) throw new RejectedExecutionException();
+            encoder.execute(() -> encode(pixels, width, height, resize, uploads));
+        } catch (RejectedExecutionException e) {
+            pool.offer(pixels);
+            log.debug("Screenshot encoder is busy, dropping the frame");
+        }
+    }
+
+    private void encode(int[] pixels, int width, int height, boolean resize, List<Consumer<encoded>> uploads) {
+        encoded screenshot;
+        try {
+            // Resize the dimensions of the screenshot to 800px before sending it off, crops that fit within that are kept at native resolution
+            BufferedImage image = resize ? scaler.fit(pixels, width, height, MAX_SIZE) : imageScaler.wrap(pixels, width, height);
+            screenshotCodec codec = codec();
+            screenshot = new encoded(codec.encode(image), codec.getMediaType(), codec.getFileName());
+        } catch (IOException e) {
+            log.error("Error converting image to byte array", e);
+            return;
+        } finally {
+            pool.offer(pixels);
+        }
+        for (Consumer<encoded> upload : uploads) {
+            try { upload.accept(screenshot); }
+            catch (Exception e) { log.debug("Error uploading screenshot", e); }
+        }
+    }
+
+    // Maps the regions from canvas to frame coordinates, the frame is larger than the canvas in stretched mode
+    // Regions off screen or inside another region are left out
+    private List<Rectangle> regions(Supplier<List<Rectangle>> supplier, BufferedImage frame) {
+        List<Rectangle> canvasRegions;
+        try { canvasRegions = supplier.get(); }
+        catch (Exception e) {
+            log.debug("Error resolving screenshot regions", e);
+            return null;
+        }
+        if (canvasRegions == null) return null;
+
+        double scaleX = (client.getCanvasWidth() > 0) ? (double) frame.getWidth() / client.getCanvasWidth() : 1;
+        double scaleY = (client.getCanvasHeight() > 0) ? (double) frame.getHeight() / client.getCanvasHeight() : 1;
+        Rectangle bounds = new Rectangle(0, 0, frame.getWidth(), frame.getHeight());
+        List<Rectangle> regions = new ArrayList<>();
+        for (Rectangle canvasRegion : canvasRegions) {
+            if (canvasRegion == null) continue;
+            Rectangle region = new Rectangle((int) Math.floor(canvasRegion.x * scaleX), (int) Math.floor(canvasRegion.y * scaleY),
+                    (int) Math.ceil(canvasRegion.width * scaleX), (int) Math.ceil(canvasRegion.height * scaleY)).intersection(bounds);
+            if (region.isEmpty()) continue;
+            regions.removeIf(region::contains);
+            if (regions.stream().noneMatch(r -> r.contains(region))) regions.add(region);
+        }
+        return regions;
+    }
+
+    // PNG unless the server accepts JPEG and the player hasn't chosen PNG
+    private screenshotCodec codec() {
+        if (!jpegAccepted || config.screenshotFormat() != PokescapeConfig.ScreenshotFormat.JPEG) return pngCodec.INSTANCE;
+        return new jpegCodec(config.screenshotQuality() / 100f, config.screenshotSubsampling());
+    }
+
+    private int[] borrow(int length) {
+        int[] pixels = pool.poll();
+        return (pixels != null && pixels.length >= length) ? pixels : new int[length];
+    }
+
+    // Packed int rasters are copied a row at a time, anything else goes through getRGB
+    private static int[] copyPixels(BufferedImage frame, int[] pixels) {
+        int width = frame.getWidth();
+        int height = frame.getHeight();
+        int type = frame.getType();
+        if (type == BufferedImage.TYPE_INT_RGB || type == BufferedImage.TYPE_INT_ARGB) {
+            frame.getRaster().getDataElements(0, 0, width, height, pixels);
+        } else {
+            frame.getRGB(0, 0, width, height, pixels, 0, width);
+        }
+        return pixels;
+    }
+
+    // Each region starts at the left edge below the previous one, the space to the right of narrower regions is black
+    private static int[] copyRegions(BufferedImage frame, List<Rectangle> regions, int width, int height, int[] pixels) {
+        Arrays.fill(pixels, 0, width * height, 0);
+        int type = frame.getType();
+        boolean packed = type == BufferedImage.TYPE_INT_RGB || type == BufferedImage.TYPE_INT_ARGB;
+        int[] row = packed ? new int[width] : null;
+        int y = 0;
+        for (Rectangle region : regions) {
+            if (packed) {
+                for (int i = 0; i < region.height; i++) {
+                    frame.getRaster().getDataElements(region.x, region.y + i, region.width, 1, row);
+                    System.arraycopy(row, 0, pixels, (y + i) * width, region.width);
+                }
+            } else {
+                frame.getRGB(region.x, region.y, region.width, region.height, pixels, y * width, width);
+            }
+            y += region.height;
+        }
+        return pixels;
+    }
+
+    private static class request {
+        private final Supplier<List<Rectangle>> regions;
+        private final Consumer<encoded> upload;
+
+        private request(Supplier<List<Rectangle>> regions, Consumer<encoded> upload) {
+            this.regions = regions;
+            this.upload = upload;
+        }
+    }
+
+    public static class encoded {
+        private final @Getter byte[] data;
+        private final @Getter String mediaType;
+        private final @Getter String fileName;
+
+        private encoded(byte[] data, String mediaType, String fileName) {
+            this.data = data;
+            this.mediaType = mediaType;
+            this.fileName = fileName;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2024, Quo <https://github.com/Quoded>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.pokescape.web;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Collapses repeated SSE signals of one kind (sync, fetchProfile) into a single request
+// Targeted signals fire right away, broadcast signals fire after a random delay so the whole competition doesn't request at once
+// After a request fires, further signals within the window are folded into one trailing request
+class signalCoalescer {
+    private static final long WINDOW_MS = 2000;
+    // The jitter comes from the server, a bad value must not hold a signal back indefinitely
+    private static final long MAX_JITTER_MS = 60000;
+
+    private final ScheduledExecutorService executor;
+    private final Runnable action;
+    private ScheduledFuture<?> scheduled;
+    private boolean scheduledBroadcast;
+    private long lastFiredAt;
+
+    signalCoalescer(ScheduledExecutorService executor, Runnable action) {
+        this.executor = executor;
+        this.action = action;
+    }
+
+    synchronized void signal(boolean broadcast, long jitterMs) {
+        long now = System.currentTimeMillis();
+        long windowOpensIn = Math.max(0, lastFiredAt + WINDOW_MS - now);
+        if (broadcast) {
+            // Any request already on the way covers this signal
+            if (scheduled != null) return;
+            long jitter = (jitterMs > 0) ? ThreadLocalRandom.current().nextLong(Math.min(jitterMs, MAX_JITTER_MS) + 1) : 0;
+            schedule(Math.max(jitter, windowOpensIn), true);
+            return;
+        }
+        // A targeted signal doesn't wait behind a jittered broadcast
+        if (scheduled != null) {
+            if (!scheduledBroadcast) return;
+            scheduled.cancel(false);
+            scheduled = null;
+        }
+        if (windowOpensIn == 0) fire();
+        else schedule(windowOpensIn, false);
+    }
+
+    synchronized void cancel() {
+        if (scheduled != null) scheduled.cancel(false);
+        scheduled = null;
+    }
+
+    private void schedule(long delayMs, boolean broadcast) {
+        scheduledBroadcast = broadcast;
+        scheduled = executor.schedule(() -> {
+            synchronized (this) {
+                scheduled = null;
+                lastFiredAt = System.currentTimeMillis();
+            }
+            action.run();
+        }, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void fire() {
+        lastFiredAt = System.currentTimeMillis();
+        executor.execute(action);
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2024, Quo <https://github.com/Quoded>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.pokescape.web;
+
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ByteString;
+
+import java.io.IOException;
+
+// Incremental text/event-stream decoder
+// Lines are read straight off the source, so frames may be split across or packed into any number of network reads
+// Comment (heartbeat) lines and blank lines are skipped in the buffer without allocating
+class sseDecoder {
+    private static final byte LF = '\n';
+    private static final byte CR = '\r';
+    private static final byte COLON = ':';
+    private static final ByteString LINE_END = ByteString.of(CR, LF);
+
+    interface listener {
+        void onEvent(String id, String type, String data);
+        void onRetry(long retryMs);
+    }
+
+    private final StringBuilder data = new StringBuilder();
+    private String eventType;
+    private String lastEventId;
+
+    sseDecoder(String lastEventId) {
+        this.lastEventId = lastEventId;
+    }
+
+    String getLastEventId() {
+        return lastEventId;
+    }
+
+    // Blocks until the stream ends, dispatching every complete event to the listener
+    void decode(BufferedSource source, listener listener) throws IOException {
+        // Lines end in CRLF, LF or a bare CR, so the LF of a CRLF pair may arrive in a later read
+        boolean skipLF = false;
+        while (source.request(1)) {
+            Buffer buffer = source.getBuffer();
+            byte first = buffer.getByte(0);
+            if (skipLF) {
+                skipLF = false;
+                if (first == LF) {
+                    source.skip(1);
+                    continue;
+                }
+            }
+            if (first == LF || first == CR) {
+                source.skip(1);
+                skipLF = first == CR;
+                dispatch(listener);
+                continue;
+            }
+            long end = source.indexOfElement(LINE_END);
+            // The stream ended partway through a line
+            if (end == -1) break;
+            if (first == COLON) source.skip(end);
+            else processLine(source.readUtf8(end), listener);
+            skipLF = buffer.readByte() == CR;
+        }
+        // An event that was not terminated by a blank line is discarded
+        data.setLength(0);
+        eventType = null;
+    }
+
+    private void processLine(String line, listener listener) {
+        int colon = line.indexOf(':');
+        String field = (colon == -1) ? line : line.substring(0, colon);
+        String value = "";
+        if (colon != -1) {
+            int start = colon + 1;
+            if (start < line.length() && line.charAt(start) == ' ') start++;
+            value = line.substring(start);
+        }
+        switch (field) {
+            case "event":
+                eventType = value;
+                break;
+            case "data":
+                data.append(value).append('\n');
+                break;
+            case "id":
+                if (value.indexOf('\0') == -1) lastEventId = value;
+                break;
+            case "retry":
+                if (!value.isEmpty() && value.chars().allMatch(c -> c >= '0' && c <= '9')) {
+                    try { listener.onRetry(Long.parseLong(value)); }
+                    catch (NumberFormatException ignored) { }
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void dispatch(listener listener) {
+        if (data.length() == 0) {
+            eventType = null;
+            return;
+        }
+        data.setLength(data.length() - 1);
+        String type = (eventType == null || eventType.isEmpty()) ? "message" : eventType;
+        String payload = data.toString();
+        data.setLength(0);
+        eventType = null;
+        listener.onEvent(lastEventId, type, payload);
+    }
+}
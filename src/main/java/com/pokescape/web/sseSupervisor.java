@@ -0,0 +1,216 @@
+/*
+ * Copyright (c) 2024, Quo <https://github.com/Quoded>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.pokescape.web;
+
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.api.Client;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// Owns the SSE connection: connects, watches for a stalled stream, and reconnects with jittered backoff
+// A connection that delivers no bytes (events or heartbeats) within the read timeout is treated as dead
+@Slf4j
+@Singleton
+public class sseSupervisor {
+    public enum state { CONNECTING, OPEN, BACKOFF, CLOSED }
+
+    private static final long HEARTBEAT_TIMEOUT_S = 45;
+    private static final long BASE_BACKOFF_MS = 1000;
+    private static final long MAX_BACKOFF_MS = 60000;
+    private static final long STABLE_CONNECTION_MS = 30000;
+
+    private @Inject Client client;
+    private @Inject OkHttpClient okHttpClient;
+
+    private ScheduledExecutorService executor;
+    private OkHttpClient sseClient;
+    private Call sseCall;
+    private Consumer<String> eventHandler;
+    private Consumer<state> stateListener;
+    private final Map<String, signalCoalescer> signals = new HashMap<>();
+    private state currentState = state.CLOSED;
+    private boolean running;
+    private int generation;
+    private long backoffMs;
+    private long openedAt;
+    private volatile String lastEventId;
+    private volatile long serverRetryMs = -1;
+
+    public synchronized void startUp() {
+        if (executor == null) executor = Executors.newSingleThreadScheduledExecutor();
+        if (sseClient == null) {
+            sseClient = okHttpClient.newBuilder()
+                    .connectTimeout(10, TimeUnit.SECONDS)
+                    .readTimeout(HEARTBEAT_TIMEOUT_S, TimeUnit.SECONDS)
+                    .writeTimeout(10, TimeUnit.SECONDS)
+                    .build();
+        }
+    }
+
+    public synchronized void shutDown() {
+        stop();
+        if (executor != null) executor.shutdownNow();
+        executor = null;
+    }
+
+    // Opens a new connection, replacing any existing one. Each event's data is passed to the handler
+    public synchronized void start(Consumer<String> eventHandler, Consumer<state> stateListener) {
+        if (executor == null) return;
+        stop();
+        this.eventHandler = eventHandler;
+        this.stateListener = stateListener;
+        running = true;
+        backoffMs = 0;
+        connect(++generation);
+    }
+
+    // Closes the connection and stops reconnecting
+    public synchronized void stop() {
+        running = false;
+        generation++;
+        signals.values().forEach(signalCoalescer::cancel);
+        signals.clear();
+        if (sseCall != null) sseCall.cancel();
+        sseCall = null;
+        setState(state.CLOSED);
+    }
+
+    public synchronized boolean isRunning() {
+        return running;
+    }
+
+    // Requests triggered by SSE signals go through a coalescer per signal name
+    public synchronized void signal(String name, boolean broadcast, long jitterMs, Runnable action) {
+        if (!running || executor == null) return;
+        signals.computeIfAbsent(name, key -> new signalCoalescer(executor, () -> {
+            try { action.run(); }
+            catch (Exception e) { log.debug("Error handling SSE signal {}", key, e); }
+        })).signal(broadcast, jitterMs);
+    }
+
+    private synchronized void connect(int attempt) {
+        if (!running || attempt != generation) return;
+        setState(state.CONNECTING);
+
+        // Last-Event-ID lets the server resend any signals missed while the connection was down
+        Request.Builder requestBuilder = new Request.Builder().url(PokescapeClient.API_ENDPOINT + "/sse")
+                .addHeader("Accept", "text/event-stream")
+                .addHeader("Client-Hash", Long.toString(client.getAccountHash()));
+        if (lastEventId != null) requestBuilder.addHeader("Last-Event-ID", lastEventId);
+
+        sseCall = sseClient.newCall(requestBuilder.build());
+        sseCall.enqueue(new Callback() {
+            @Override
+            public void onResponse(Call call, Response response) {
+                if (!response.isSuccessful()) {
+                    log.debug("Failed to connect to SSE endpoint. HTTP status code: " + response.code());
+                    response.close();
+                    scheduleReconnect(attempt);
+                    return;
+                }
+                opened(attempt);
+                try (ResponseBody body = response.body()) {
+                    if (body != null) readEvents(body, attempt);
+                } catch (IOException e) {
+                    log.debug("SSE connection dropped: {}", e.getMessage());
+                }
+                scheduleReconnect(attempt);
+            }
+            @Override
+            public void onFailure(Call call, IOException e) {
+                scheduleReconnect(attempt);
+            }
+        });
+    }
+
+    private void readEvents(ResponseBody body, int attempt) throws IOException {
+        sseDecoder decoder = new sseDecoder(lastEventId);
+        decoder.decode(body.source(), new sseDecoder.listener() {
+            @Override
+            public void onEvent(String id, String type, String data) {
+                lastEventId = id;
+                Consumer<String> handler;
+                synchronized (sseSupervisor.this) {
+                    if (attempt != generation) return;
+                    handler = eventHandler;
+                }
+                try { handler.accept(data); }
+                catch (Exception e) { log.debug("Error handling SSE event", e); }
+            }
+            @Override
+            public void onRetry(long retryMs) {
+                serverRetryMs = retryMs;
+            }
+        });
+    }
+
+    private synchronized void opened(int attempt) {
+        if (attempt != generation) return;
+        openedAt = System.currentTimeMillis();
+        setState(state.OPEN);
+    }
+
+    private synchronized void scheduleReconnect(int attempt) {
+        if (!running || attempt != generation || executor == null) return;
+        // A connection that stayed up for a while starts the backoff over
+        if (currentState == state.OPEN && System.currentTimeMillis() - openedAt > STABLE_CONNECTION_MS) backoffMs = 0;
+        backoffMs = nextBackoff(backoffMs);
+        setState(state.BACKOFF);
+        executor.schedule(() -> connect(attempt), backoffMs, TimeUnit.MILLISECONDS);
+    }
+
+    // Decorrelated jitter: each delay is drawn between the base and three times the previous delay, up to the cap
+    // The first delay after a reset is drawn as if the previous one was the base, so it's never exactly the base
+    // Spreads reconnects out so every client doesn't return in lockstep when the API restarts
+    private long nextBackoff(long previous) {
+        long base = (serverRetryMs > 0) ? serverRetryMs : BASE_BACKOFF_MS;
+        long upper = Math.max(base, previous) * 3;
+        return Math.min(MAX_BACKOFF_MS, ThreadLocalRandom.current().nextLong(base, upper + 1));
+    }
+
+    private void setState(state newState) {
+        if (currentState == newState) return;
+        currentState = newState;
+        Consumer<state> listener = stateListener;
+        if (listener == null) return;
+        try { listener.accept(newState); }
+        catch (Exception e) { log.debug("Error updating SSE state", e); }
+    }
+}
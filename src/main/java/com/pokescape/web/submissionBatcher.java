@@ -0,0 +1,248 @@
+/*
+ * Copyright (c) 2024, Quo <https://github.com/Quoded>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.pokescape.web;
+
+import com.google.gson.stream.JsonWriter;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.MultipartBody;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+// Coalesces loot/event submissions created close together into a single /batch request
+// Only active when the server advertises batchSubmissions in the /profile response
+// The coalescing window follows the measured round trip time, capped at one game tick
+@Slf4j
+@Singleton
+public class submissionBatcher {
+    private static final String BATCH_ROUTE = "/batch";
+    private static final int MAX_BATCH_SIZE = 16;
+    private static final long MIN_WINDOW_MS = 20;
+    private static final long MAX_WINDOW_MS = 600;
+    private static final double ROUND_TRIP_WEIGHT = 0.2;
+
+    private @Inject OkHttpClient okHttpClient;
+    private @Inject payloadEncoder encoder;
+
+    private ScheduledExecutorService executor;
+    private ScheduledFuture<?> pendingFlush;
+    private List<item> queued = new ArrayList<>();
+    private volatile boolean enabled;
+    private volatile long maxWindow = MAX_WINDOW_MS;
+    private volatile double roundTripMs = -1;
+
+    public submissionBatcher() {
+    }
+
+    submissionBatcher(OkHttpClient okHttpClient, payloadEncoder encoder) {
+        this.okHttpClient = okHttpClient;
+        this.encoder = encoder;
+    }
+
+    interface resultHandler {
+        void onResult(int code, apiResponse responseBody);
+        void onFailure();
+    }
+
+    public synchronized void startUp() {
+        if (executor == null) executor = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    // Queued submissions are already in the outbox and are replayed next session, so they are not sent here
+    public synchronized void shutDown() {
+        if (executor == null) return;
+        executor.shutdownNow();
+        executor = null;
+        pendingFlush = null;
+        queued = new ArrayList<>();
+    }
+
+    public void setCapability(boolean batchSubmissions, Integer batchWindow) {
+        enabled = batchSubmissions;
+        maxWindow = (batchWindow != null) ? Math.max(MIN_WINDOW_MS, Math.min(batchWindow, MAX_WINDOW_MS)) : MAX_WINDOW_MS;
+    }
+
+    // Called from OkHttp callback threads, the read and update of the average has to be one step
+    public synchronized void recordRoundTrip(long elapsedMs) {
+        double previous = roundTripMs;
+        roundTripMs = (previous < 0) ? elapsedMs : previous + ROUND_TRIP_WEIGHT * (elapsedMs - previous);
+    }
+
+    // Waiting half a round trip costs little next to the request itself, but never hold a submission past one tick
+    long window() {
+        double roundTrip = roundTripMs;
+        if (roundTrip < 0) return maxWindow;
+        return Math.max(MIN_WINDOW_MS, Math.min((long) (roundTrip / 2), maxWindow));
+    }
+
+    // sendAlone performs the regular single submission request and is used whenever batching doesn't apply
+    void submit(String route, String key, String payload, Runnable sendAlone, resultHandler handler) {
+        item submission = new item(route, key, payload, sendAlone, handler);
+        synchronized (this) {
+            if (enabled && executor != null) {
+                queued.add(submission);
+                if (queued.size() >= MAX_BATCH_SIZE) {
+                    if (pendingFlush != null) pendingFlush.cancel(false);
+                    pendingFlush = null;
+                    executor.execute(this::flush);
+                } else if (pendingFlush == null) {
+                    pendingFlush = executor.schedule(this::flush, window(), TimeUnit.MILLISECONDS);
+                }
+                return;
+            }
+        }
+        sendAlone.run();
+    }
+
+    private void flush() {
+        List<item> batch;
+        synchronized (this) {
+            if (queued.isEmpty()) return;
+            if (queued.size() <= MAX_BATCH_SIZE) {
+                batch = queued;
+                queued = new ArrayList<>();
+            } else {
+                // More arrived before the flush ran, the rest is already due and goes out right after
+                batch = new ArrayList<>(queued.subList(0, MAX_BATCH_SIZE));
+                queued = new ArrayList<>(queued.subList(MAX_BATCH_SIZE, queued.size()));
+                if (executor != null) executor.execute(this::flush);
+            }
+            if (pendingFlush != null) pendingFlush.cancel(false);
+            pendingFlush = null;
+        }
+        if (batch.size() == 1) batch.get(0).sendAlone.run();
+        else sendBatch(batch);
+    }
+
+    private void sendBatch(List<item> batch) {
+        String payload;
+        try {
+            payload = encode(batch);
+        } catch (IOException e) {
+            log.debug("Unable to encode submission batch", e);
+            batch.forEach(submission -> submission.sendAlone.run());
+            return;
+        }
+        MultipartBody.Builder requestBodyBuilder = new MultipartBody.Builder().setType(MultipartBody.FORM);
+        encoder.addPayload(requestBodyBuilder, payload);
+        MultipartBody requestBody = requestBodyBuilder.build();
+        Request request = new Request.Builder().url(PokescapeClient.API_ENDPOINT + BATCH_ROUTE).post(requestBody).build();
+
+        long sentAt = System.currentTimeMillis();
+        okHttpClient.newCall(request).enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                batch.forEach(submissionBatcher::fail);
+            }
+            @Override
+            public void onResponse(Call call, Response response) {
+                try {
+                    recordRoundTrip(System.currentTimeMillis() - sentAt);
+                    // The server dropped batching support, fall back to individual requests
+                    if (response.code() == 404 || response.code() == 405) {
+                        enabled = false;
+                        batch.forEach(submission -> submission.sendAlone.run());
+                        return;
+                    }
+                    if (response.code() >= 500) {
+                        batch.forEach(submissionBatcher::fail);
+                        return;
+                    }
+                    dispatch(batch, apiResponse.read(response));
+                } finally {
+                    response.close();
+                }
+            }
+        });
+    }
+
+    // Results are returned in submission order: {"results": [{"code": 210, ...}, ...]}
+    // A submission without a result is treated as undelivered and stays in the outbox
+    private static void dispatch(List<item> batch, apiResponse responseBody) {
+        List<apiResponse> results = responseBody.getResults();
+        for (int i = 0; i < batch.size(); i++) {
+            item submission = batch.get(i);
+            apiResponse result = (results != null && i < results.size()) ? results.get(i) : null;
+            if (result == null || result.getCode() == null) {
+                fail(submission);
+                continue;
+            }
+            try { submission.handler.onResult(result.getCode(), result); }
+            catch (Exception e) { log.debug("Error processing batched response", e); }
+        }
+    }
+
+    private static void fail(item submission) {
+        try { submission.handler.onFailure(); }
+        catch (Exception e) { log.debug("Error processing batched failure", e); }
+    }
+
+    // Payloads are already serialized, so they're spliced into the batch without being parsed again
+    // Each submission carries its outbox key, the same key its single request sends as Idempotency-Key
+    private static String encode(List<item> batch) throws IOException {
+        StringWriter out = new StringWriter();
+        JsonWriter writer = new JsonWriter(out);
+        writer.beginObject().name("submissions").beginArray();
+        for (item submission : batch) {
+            writer.beginObject();
+            writer.name("route").value(submission.route);
+            writer.name("key").value(submission.key);
+            writer.name("body").jsonValue(submission.payload);
+            writer.endObject();
+        }
+        writer.endArray().endObject();
+        writer.flush();
+        return out.toString();
+    }
+
+    private static class item {
+        private final String route;
+        private final String key;
+        private final String payload;
+        private final Runnable sendAlone;
+        private final resultHandler handler;
+
+        private item(String route, String key, String payload, Runnable sendAlone, resultHandler handler) {
+            this.route = route;
+            this.key = key;
+            this.payload = payload;
+            this.sendAlone = sendAlone;
+            this.handler = handler;
+        }
+    }
+}
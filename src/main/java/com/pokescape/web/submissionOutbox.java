@@ -0,0 +1,378 @@
+/*
+ * Copyright (c) 2024, Quo <https://github.com/Quoded>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.pokescape.web;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.client.RuneLite;
+
+import javax.inject.Singleton;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+// Append-only log of loot/event submissions that have not yet been acknowledged by the server
+// Every record is [length][crc32][type][id][route][key][payload] so a torn write at the tail is detected and truncated on load
+// The key is sent with every attempt so the server can drop a submission it already received before the connection broke
+// All disk IO and outbox state is confined to a single thread
+@Slf4j
+@Singleton
+public class submissionOutbox {
+    private static final String OUTBOX_FILE = "outbox.dat";
+    private static final byte RECORD_SUBMISSION = 1;
+    private static final byte RECORD_ACK = 2;
+    private static final int MAX_RECORD_SIZE = 1 << 20;
+    private static final int MAX_ENTRIES = 500;
+    private static final long MAX_BYTES = 4L << 20;
+    private static final long COMPACT_THRESHOLD = 256L << 10;
+    private static final int SYNC_DELAY_MS = 250;
+
+    private final File outboxDir;
+    private volatile ScheduledExecutorService executor;
+    private FileChannel channel;
+    private final Deque<entry> pending = new ArrayDeque<>();
+    private long nextId = 1;
+    private long liveBytes;
+    private long fileBytes;
+    private boolean syncScheduled;
+    private boolean replaying;
+
+    public submissionOutbox() {
+        this(new File(RuneLite.RUNELITE_DIR, "pokescape"));
+    }
+
+    submissionOutbox(File outboxDir) {
+        this.outboxDir = outboxDir;
+    }
+
+    public synchronized void startUp() {
+        if (executor != null) return;
+        executor = Executors.newSingleThreadScheduledExecutor();
+        executor.execute(this::load);
+    }
+
+    public synchronized void shutDown() {
+        if (executor == null) return;
+        executor.execute(this::close);
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(2, TimeUnit.SECONDS)) log.debug("Timed out flushing the submission outbox");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        executor = null;
+    }
+
+    // Serializes and records a submission, then hands the entry over to be sent
+    // The entry is used to acknowledge or release the submission later
+    public void append(String route, Supplier<String> payload, Consumer<entry> recorded) {
+        if (executor == null) {
+            // Not started, send the submission without persisting it
+            recorded.accept(new entry(route, newKey(), payload.get()));
+            return;
+        }
+        execute(() -> {
+            entry submission = new entry(route, newKey(), payload.get());
+            submission.inFlight = true;
+            submission.id = nextId++;
+            pending.add(submission);
+            liveBytes += submission.size();
+            write(encode(RECORD_SUBMISSION, submission));
+            enforceBounds();
+            recorded.accept(submission);
+        });
+    }
+
+    // The server received the submission, it will never be sent again
+    public void ack(entry submission) {
+        execute(() -> {
+            if (submission == null || !pending.remove(submission)) return;
+            liveBytes -= submission.size();
+            write(encode(RECORD_ACK, submission));
+            compactIfNeeded();
+        });
+    }
+
+    // The submission failed to send, it stays in the outbox until the next replay
+    public void release(entry submission) {
+        execute(() -> { if (submission != null) submission.inFlight = false; });
+    }
+
+    // Hands the oldest idle submission to the sender. Only one replayed submission is in flight at a time
+    public void replay(Consumer<entry> sender) {
+        execute(() -> {
+            if (replaying) return;
+            for (entry submission : pending) {
+                if (submission.inFlight) continue;
+                submission.inFlight = true;
+                replaying = true;
+                sender.accept(submission);
+                return;
+            }
+        });
+    }
+
+    // Completes a replayed submission. The sender replays the next submission itself if this one was delivered
+    public void replayFinished(entry submission, boolean delivered) {
+        if (delivered) ack(submission);
+        else release(submission);
+        execute(() -> replaying = false);
+    }
+
+    private void execute(Runnable task) {
+        ScheduledExecutorService current = executor;
+        if (current == null || current.isShutdown()) return;
+        current.execute(() -> {
+            try { task.run(); }
+            catch (Exception e) { log.debug("Error updating the submission outbox", e); }
+        });
+    }
+
+    private void load() {
+        try {
+            if (!outboxDir.exists() && !outboxDir.mkdirs()) {
+                log.debug("Unable to create the outbox directory {}", outboxDir);
+                return;
+            }
+            Path path = new File(outboxDir, OUTBOX_FILE).toPath();
+            ByteBuffer data = ByteBuffer.wrap(Files.exists(path) ? Files.readAllBytes(path) : new byte[0]);
+            long validBytes = 0;
+            while (data.remaining() >= 8) {
+                int length = data.getInt();
+                int crc = data.getInt();
+                if (length < 9 || length > MAX_RECORD_SIZE || length > data.remaining()) break;
+                byte[] record = new byte[length];
+                data.get(record);
+                if (checksum(record) != crc) break;
+                readRecord(ByteBuffer.wrap(record));
+                validBytes = data.position();
+            }
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            // Anything past the last intact record is a partial write from a crash
+            if (channel.size() > validBytes) {
+                log.debug("Truncating {} bytes of damaged outbox records", channel.size() - validBytes);
+                channel.truncate(validBytes);
+            }
+            channel.position(validBytes);
+            fileBytes = validBytes;
+            for (entry submission : pending) liveBytes += submission.size();
+            if (!pending.isEmpty()) log.debug("Loaded {} unsent submissions from the outbox", pending.size());
+            compactIfNeeded();
+        } catch (IOException e) {
+            log.debug("Unable to open the submission outbox", e);
+            closeChannel();
+        }
+    }
+
+    private void readRecord(ByteBuffer record) {
+        byte type = record.get();
+        long id = record.getLong();
+        nextId = Math.max(nextId, id + 1);
+        if (type == RECORD_ACK) {
+            pending.removeIf(submission -> submission.id == id);
+            return;
+        }
+        if (type != RECORD_SUBMISSION) return;
+        byte[] route = new byte[record.getShort() & 0xFFFF];
+        record.get(route);
+        byte[] key = new byte[record.getShort() & 0xFFFF];
+        record.get(key);
+        byte[] payload = new byte[record.remaining()];
+        record.get(payload);
+        entry submission = new entry(new String(route, StandardCharsets.UTF_8), new String(key, StandardCharsets.UTF_8), new String(payload, StandardCharsets.UTF_8));
+        submission.id = id;
+        pending.add(submission);
+    }
+
+    private static byte[] encode(byte type, entry submission) {
+        try {
+            ByteArrayOutputStream record = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(record);
+            out.writeByte(type);
+            out.writeLong(submission.id);
+            if (type == RECORD_SUBMISSION) {
+                byte[] routeBytes = submission.route.getBytes(StandardCharsets.UTF_8);
+                out.writeShort(routeBytes.length);
+                out.write(routeBytes);
+                byte[] keyBytes = submission.key.getBytes(StandardCharsets.UTF_8);
+                out.writeShort(keyBytes.length);
+                out.write(keyBytes);
+                out.write(submission.payload.getBytes(StandardCharsets.UTF_8));
+            }
+            out.flush();
+            return record.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void write(byte[] record) {
+        if (channel == null) return;
+        if (record.length > MAX_RECORD_SIZE) {
+            log.debug("Submission is too large for the outbox ({} bytes)", record.length);
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(8 + record.length);
+        buffer.putInt(record.length).putInt(checksum(record)).put(record).flip();
+        try {
+            while (buffer.hasRemaining()) channel.write(buffer);
+            fileBytes += 8 + record.length;
+        } catch (IOException e) {
+            log.debug("Unable to write to the submission outbox", e);
+            closeChannel();
+            return;
+        }
+        // Batch fsyncs: records written within the delay share a single force
+        ScheduledExecutorService current = executor;
+        if (!syncScheduled && current != null) {
+            try {
+                current.schedule(this::sync, SYNC_DELAY_MS, TimeUnit.MILLISECONDS);
+                syncScheduled = true;
+            } catch (RejectedExecutionException ignored) {
+                // Shutting down, close() performs the final sync
+            }
+        }
+    }
+
+    private void sync() {
+        syncScheduled = false;
+        if (channel == null) return;
+        try { channel.force(false); }
+        catch (IOException e) { log.debug("Unable to sync the submission outbox", e); }
+    }
+
+    // Drops the oldest idle submissions once the outbox grows past its limits
+    private void enforceBounds() {
+        Iterator<entry> oldest = pending.iterator();
+        while ((pending.size() > MAX_ENTRIES || liveBytes > MAX_BYTES) && oldest.hasNext()) {
+            entry submission = oldest.next();
+            if (submission.inFlight) continue;
+            log.warn("Submission outbox is full, dropping an unsent {} submission", submission.route);
+            oldest.remove();
+            liveBytes -= submission.size();
+            write(encode(RECORD_ACK, submission));
+        }
+        compactIfNeeded();
+    }
+
+    // Rewrites the log with only the unacknowledged submissions once acks dominate the file
+    private void compactIfNeeded() {
+        if (channel == null) return;
+        try {
+            if (pending.isEmpty()) {
+                if (fileBytes > 0) {
+                    channel.truncate(0);
+                    channel.position(0);
+                    fileBytes = 0;
+                }
+                return;
+            }
+            if (fileBytes < COMPACT_THRESHOLD || fileBytes < liveBytes * 2) return;
+            Path path = new File(outboxDir, OUTBOX_FILE).toPath();
+            Path compacted = new File(outboxDir, OUTBOX_FILE + ".tmp").toPath();
+            long compactedBytes = 0;
+            try (FileChannel out = FileChannel.open(compacted, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                for (entry submission : pending) {
+                    byte[] record = encode(RECORD_SUBMISSION, submission);
+                    ByteBuffer buffer = ByteBuffer.allocate(8 + record.length);
+                    buffer.putInt(record.length).putInt(checksum(record)).put(record).flip();
+                    while (buffer.hasRemaining()) out.write(buffer);
+                    compactedBytes += 8 + record.length;
+                }
+                out.force(true);
+            }
+            channel.close();
+            try { Files.move(compacted, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE); }
+            catch (AtomicMoveNotSupportedException e) { Files.move(compacted, path, StandardCopyOption.REPLACE_EXISTING); }
+            channel = FileChannel.open(path, StandardOpenOption.WRITE);
+            channel.position(compactedBytes);
+            fileBytes = compactedBytes;
+        } catch (IOException e) {
+            log.debug("Unable to compact the submission outbox", e);
+            closeChannel();
+        }
+    }
+
+    private void close() {
+        sync();
+        closeChannel();
+    }
+
+    private void closeChannel() {
+        if (channel == null) return;
+        try { channel.close(); }
+        catch (IOException e) { log.debug("Unable to close the submission outbox", e); }
+        channel = null;
+    }
+
+    // Outbox ids restart once the log is emptied, the key has to stay unique across sessions
+    private static String newKey() {
+        return UUID.randomUUID().toString();
+    }
+
+    private static int checksum(byte[] record) {
+        CRC32 crc = new CRC32();
+        crc.update(record, 0, record.length);
+        return (int) crc.getValue();
+    }
+
+    public static class entry {
+        private final @Getter String route;
+        private final @Getter String key;
+        private final @Getter String payload;
+        private long id;
+        private boolean inFlight;
+
+        private entry(String route, String key, String payload) {
+            this.route = route;
+            this.key = key;
+            this.payload = payload;
+        }
+
+        private long size() {
+            return route.length() + key.length() + payload.length();
+        }
+    }
+}
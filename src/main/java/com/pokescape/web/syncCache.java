@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2024, Quo <https://github.com/Quoded>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.pokescape.web;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import com.pokescape.util.jsonStream;
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.client.RuneLite;
+
+import javax.inject.Singleton;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import static net.runelite.http.api.RuneLiteAPI.GSON;
+
+// Keeps the last synced sections (pets, events, activities, allowblock) and their manifest on disk
+// so events can be matched at startup before the /profile and /sync round trips finish
+// File layout: [magic][format version][crc32][length][gzipped json bundle]
+@Slf4j
+@Singleton
+public class syncCache {
+    private static final String CACHE_FILE = "sync.dat";
+    private static final int MAGIC = 0x50534331;
+    private static final int FORMAT_VERSION = 1;
+    private static final int MAX_SIZE = 16 << 20;
+    private static final String MANIFEST = "manifest";
+
+    private final File cacheFile;
+    // Section name to its JSON text, sections are never parsed into trees here
+    private Map<String, String> bundle = new LinkedHashMap<>();
+
+    public syncCache() {
+        this(new File(RuneLite.RUNELITE_DIR, "pokescape"));
+    }
+
+    syncCache(File cacheDir) {
+        this.cacheFile = new File(cacheDir, CACHE_FILE);
+    }
+
+    // Returns the cached bundle, or null if there is none or it fails validation
+    public synchronized Map<String, String> load() {
+        if (!cacheFile.isFile()) return null;
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(cacheFile.toPath())))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) return null;
+            int crc = in.readInt();
+            int length = in.readInt();
+            if (length < 0 || length > MAX_SIZE) return null;
+            byte[] compressed = new byte[length];
+            in.readFully(compressed);
+            if (checksum(compressed) != crc) {
+                log.debug("Discarding corrupt sync cache");
+                return null;
+            }
+            try (JsonReader reader = new JsonReader(new InputStreamReader(new GZIPInputStream(new ByteArrayInputStream(compressed)), StandardCharsets.UTF_8))) {
+                if (!jsonStream.beginObject(reader)) return null;
+                Map<String, String> cached = new LinkedHashMap<>();
+                while (reader.hasNext()) {
+                    String section = reader.nextName();
+                    cached.put(section, jsonStream.readRaw(reader));
+                }
+                reader.endObject();
+                bundle = cached;
+                return new LinkedHashMap<>(cached);
+            }
+        } catch (Exception e) {
+            log.debug("Unable to read the sync cache", e);
+            return null;
+        }
+    }
+
+    public static JsonObject getManifest(Map<String, String> cached) {
+        String manifest = cached.get(MANIFEST);
+        JsonElement parsed = (manifest != null) ? GSON.fromJson(manifest, JsonElement.class) : null;
+        return (parsed != null && parsed.isJsonObject()) ? parsed.getAsJsonObject() : null;
+    }
+
+    // Merges freshly synced sections into the bundle and rewrites the file
+    // The manifest is only replaced when the sync was made against one
+    public synchronized void update(Map<String, String> sections, JsonObject manifest) {
+        if (sections.isEmpty() && manifest == null) return;
+        bundle.putAll(sections);
+        if (manifest != null) bundle.put(MANIFEST, GSON.toJson(manifest));
+        try {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            try (JsonWriter writer = new JsonWriter(new OutputStreamWriter(new GZIPOutputStream(compressed), StandardCharsets.UTF_8))) {
+                writer.beginObject();
+                for (Map.Entry<String, String> section : bundle.entrySet()) writer.name(section.getKey()).jsonValue(section.getValue());
+                writer.endObject();
+            }
+            byte[] body = compressed.toByteArray();
+            ByteArrayOutputStream file = new ByteArrayOutputStream(body.length + 16);
+            DataOutputStream out = new DataOutputStream(file);
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(checksum(body));
+            out.writeInt(body.length);
+            out.write(body);
+            out.flush();
+            write(file.toByteArray());
+        } catch (IOException e) {
+            log.debug("Unable to write the sync cache", e);
+        }
+    }
+
+    private void write(byte[] data) throws IOException {
+        File dir = cacheFile.getParentFile();
+        if (!dir.exists() && !dir.mkdirs()) throw new IOException("Unable to create " + dir);
+        Path path = cacheFile.toPath();
+        Path temp = new File(dir, CACHE_FILE + ".tmp").toPath();
+        Files.write(temp, data);
+        try { Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE); }
+        catch (AtomicMoveNotSupportedException e) { Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING); }
+    }
+
+    private static int checksum(byte[] data) {
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length);
+        return (int) crc.getValue();
+    }
+}
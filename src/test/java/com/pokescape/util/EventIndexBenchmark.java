@@ -0,0 +1,89 @@
+package com.pokescape.util;
+
+import com.google.gson.JsonObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Cost of a WidgetLoaded lookup against a synced event list of typical size
+// Run with ./gradlew jmh --args='EventIndexBenchmark'
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EventIndexBenchmark
+{
+	// Loaded on most ticks and not the subject of any event
+	private static final int UNINTERESTING_GROUP = 548;
+	private static final int BARROWS_CHEST = 155;
+
+	private JsonObject events;
+	private eventIndex index;
+
+	@Setup
+	public void setup()
+	{
+		events = new JsonObject();
+		for (int i = 0; i < 200; i++)
+		{
+			events.add("message" + i, event(eventIndex.GAME_MESSAGE, "You have completed (\\d+) task" + i + ".*"));
+		}
+		for (int i = 0; i < 60; i++)
+		{
+			events.add("widget" + i, event(eventIndex.LOADED_WIDGET, Integer.toString(100 + i * 7)));
+		}
+		events.add("barrowsChest", event(eventIndex.LOADED_WIDGET, Integer.toString(BARROWS_CHEST)));
+		events.add("tombsReward", event(eventIndex.LOADED_WIDGET, "77[0-9]"));
+		index = eventIndex.compile(events.toString(), "gameEvent");
+	}
+
+	@Benchmark
+	public List<eventObject> uninterestingLoad()
+	{
+		return index.matchWidget(UNINTERESTING_GROUP);
+	}
+
+	@Benchmark
+	public List<eventObject> matchingLoad()
+	{
+		return index.matchWidget(BARROWS_CHEST);
+	}
+
+	// The per-load scan over the synced JSON that the index replaced
+	@Benchmark
+	public List<String> treeScan()
+	{
+		String event = Integer.toString(UNINTERESTING_GROUP);
+		List<String> matched = new ArrayList<>();
+		events.keySet().forEach(keyName -> {
+			JsonObject keyObj = events.get(keyName).getAsJsonObject();
+			String eventKey = (keyObj.has("event") && !keyObj.get("event").isJsonNull()) ? keyObj.get("event").getAsString() : null;
+			if (eventKey != null && (event.startsWith(eventKey) || event.matches(eventKey)) && keyObj.get("type").getAsString().equals(eventIndex.LOADED_WIDGET))
+			{
+				matched.add(keyName);
+			}
+		});
+		return matched;
+	}
+
+	private static JsonObject event(String type, String eventKey)
+	{
+		JsonObject event = new JsonObject();
+		event.addProperty("type", type);
+		event.addProperty("event", eventKey);
+		return event;
+	}
+}
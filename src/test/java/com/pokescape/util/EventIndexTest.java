@@ -0,0 +1,100 @@
+package com.pokescape.util;
+
+import com.google.gson.JsonObject;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class EventIndexTest
+{
+	private static final String[][] WIDGET_EVENTS = {
+		{"barrowsChest", "155"},
+		{"chambersReward", "539"},
+		{"shortPrefix", "1"},
+		{"zeroGroup", "0"},
+		{"sameGroup", "155"},
+		{"tombsReward", "77[0-9]"},
+		{"leadingZero", "0155"},
+		{"alternation", "(12|4500)"},
+		{"invalidPattern", "[23"},
+		{"tooLarge", "70000"},
+		{"noKey", null}
+	};
+
+	@Test
+	public void widgetGroupsMatchLinearScan()
+	{
+		JsonObject events = new JsonObject();
+		for (String[] widgetEvent : WIDGET_EVENTS)
+		{
+			JsonObject event = new JsonObject();
+			event.addProperty("type", eventIndex.LOADED_WIDGET);
+			event.addProperty("event", widgetEvent[1]);
+			events.add(widgetEvent[0], event);
+		}
+		eventIndex index = eventIndex.compile(events.toString(), "gameEvent");
+
+		for (int groupId = 0; groupId <= 0xFFFF; groupId++)
+		{
+			assertEquals("group " + groupId, linearMatch(Integer.toString(groupId)), names(index.matchWidget(groupId)));
+		}
+		// Later loads of a group reuse the first result
+		for (int groupId = 0; groupId <= 0xFFFF; groupId++)
+		{
+			assertEquals("group " + groupId, linearMatch(Integer.toString(groupId)), names(index.matchWidget(groupId)));
+			assertSame(index.matchWidget(groupId), index.matchWidget(groupId));
+		}
+		assertEquals(linearMatch("-1"), names(index.matchWidget(-1)));
+	}
+
+	@Test
+	public void keepsSyncOrder()
+	{
+		JsonObject events = new JsonObject();
+		for (String[] widgetEvent : new String[][]{{"regex", "15.*"}, {"exact", "155"}, {"prefix", "1"}})
+		{
+			JsonObject event = new JsonObject();
+			event.addProperty("type", eventIndex.LOADED_WIDGET);
+			event.addProperty("event", widgetEvent[1]);
+			events.add(widgetEvent[0], event);
+		}
+		List<String> expected = new ArrayList<>();
+		expected.add("regex");
+		expected.add("exact");
+		expected.add("prefix");
+		assertEquals(expected, names(eventIndex.compile(events.toString(), "gameEvent").matchWidget(155)));
+	}
+
+	// The matcher the index replaced, checked against every event in sync order
+	private static List<String> linearMatch(String groupId)
+	{
+		List<String> matched = new ArrayList<>();
+		for (String[] widgetEvent : WIDGET_EVENTS)
+		{
+			String eventKey = widgetEvent[1];
+			if (eventKey == null) continue;
+			boolean matches = groupId.startsWith(eventKey);
+			try
+			{
+				matches |= Pattern.compile(eventKey).matcher(groupId).matches();
+			}
+			catch (PatternSyntaxException ignored)
+			{
+			}
+			if (matches) matched.add(widgetEvent[0]);
+		}
+		return matched;
+	}
+
+	private static List<String> names(List<eventObject> events)
+	{
+		List<String> names = new ArrayList<>();
+		for (eventObject event : events) names.add(event.getEventName());
+		return names;
+	}
+}
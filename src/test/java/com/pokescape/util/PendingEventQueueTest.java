@@ -0,0 +1,101 @@
+package com.pokescape.util;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.junit.Test;
+
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PendingEventQueueTest
+{
+	private static final int BARROWS_REWARD = 155;
+
+	@Test
+	public void widgetLoadedTwiceInOneTickDrainsOnce()
+	{
+		JsonObject barrows = new JsonObject();
+		barrows.addProperty("type", eventIndex.LOADED_WIDGET);
+		barrows.addProperty("event", Integer.toString(BARROWS_REWARD));
+		JsonObject events = new JsonObject();
+		events.add("barrowsChest", barrows);
+		eventIndex index = eventIndex.compile(events.toString(), "gameEvent");
+
+		pendingEventQueue queue = new pendingEventQueue(32);
+		// Two WidgetLoaded events for the same group before the next GameTick
+		for (int loaded = 0; loaded < 2; loaded++)
+		{
+			for (eventObject event : index.matchWidget(BARROWS_REWARD)) queue.add(event, BARROWS_REWARD, 0);
+		}
+
+		List<pendingEvent> drained = queue.tick();
+		assertEquals(1, drained.size());
+		assertEquals("barrowsChest", drained.get(0).getEvent().getEventName());
+		assertTrue(queue.isEmpty());
+	}
+
+	@Test
+	public void repeatedMessageDuringDelayFetchIsKept()
+	{
+		eventObject nex = event("nexKill", "delayFetch=2");
+		pendingEventQueue queue = new pendingEventQueue(32);
+
+		assertTrue(queue.add(nex, -1, 0));
+		assertTrue(queue.tick().isEmpty());
+		// A second kill inside the delay is its own submission
+		assertTrue(queue.add(nex, -1, 1));
+		assertTrue(queue.tick().isEmpty());
+		assertEquals(1, queue.tick().size());
+		assertEquals(1, queue.tick().size());
+	}
+
+	@Test
+	public void repeatedWidgetDuringDelayFetchIsDropped()
+	{
+		eventObject chest = event("barrowsChest", "delayFetch=2");
+		pendingEventQueue queue = new pendingEventQueue(32);
+
+		assertTrue(queue.add(chest, BARROWS_REWARD, 0));
+		assertTrue(queue.tick().isEmpty());
+		assertFalse(queue.add(chest, BARROWS_REWARD, 1));
+		assertTrue(queue.tick().isEmpty());
+		assertEquals(1, queue.tick().size());
+
+		// Once processed the event can be queued again
+		assertTrue(queue.add(chest, BARROWS_REWARD, 3));
+	}
+
+	@Test
+	public void distinctEventsAreKept()
+	{
+		pendingEventQueue queue = new pendingEventQueue(32);
+		assertTrue(queue.add(event("first"), -1, 0));
+		assertTrue(queue.add(event("second"), -1, 0));
+		assertTrue(queue.add(event("first"), BARROWS_REWARD, 0));
+
+		List<pendingEvent> drained = queue.tick();
+		assertEquals(3, drained.size());
+		assertEquals("first", drained.get(0).getEvent().getEventName());
+		assertEquals("second", drained.get(1).getEvent().getEventName());
+		assertEquals(BARROWS_REWARD, drained.get(2).getEventWidget());
+	}
+
+	@Test
+	public void dropsEventsWhenFull()
+	{
+		pendingEventQueue queue = new pendingEventQueue(2);
+		assertTrue(queue.add(event("first"), -1, 0));
+		assertTrue(queue.add(event("second"), -1, 0));
+		assertFalse(queue.add(event("third"), -1, 0));
+		assertEquals(2, queue.tick().size());
+	}
+
+	private static eventObject event(String name, String... parameters)
+	{
+		JsonArray param = new JsonArray();
+		for (String parameter : parameters) param.add(parameter);
+		return new eventObject(name, "gameEvent", eventSpec.parse(param));
+	}
+}
@@ -0,0 +1,90 @@
+package com.pokescape.web;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class CachedResponseTest
+{
+	private static final String STATUS = "{\"serverStatus\":1,\"serverMessage\":\"Double dex weekend!\"}";
+
+	private final MockWebServer server = new MockWebServer();
+	private final OkHttpClient okHttpClient = new OkHttpClient();
+	private final cachedResponse status = new cachedResponse();
+
+	@Before
+	public void before() throws IOException
+	{
+		server.start();
+	}
+
+	@After
+	public void after() throws IOException
+	{
+		server.shutdown();
+	}
+
+	@Test
+	public void notModifiedReusesLastBody() throws Exception
+	{
+		server.enqueue(new MockResponse().setHeader("ETag", "\"v1\"").setBody(STATUS));
+		server.enqueue(new MockResponse().setResponseCode(304));
+
+		apiResponse first = get();
+		assertEquals("Double dex weekend!", first.getServerMessage());
+		assertNull(server.takeRequest().getHeader("If-None-Match"));
+
+		assertSame(first, get());
+		assertEquals("\"v1\"", server.takeRequest().getHeader("If-None-Match"));
+	}
+
+	@Test
+	public void changedBodyReplacesValidator() throws Exception
+	{
+		server.enqueue(new MockResponse().setHeader("ETag", "\"v1\"").setBody(STATUS));
+		server.enqueue(new MockResponse().setHeader("ETag", "\"v2\"").setBody("{\"serverStatus\":2}"));
+		server.enqueue(new MockResponse().setResponseCode(304));
+
+		get();
+		assertEquals(Integer.valueOf(2), get().getServerStatus());
+		assertEquals(Integer.valueOf(2), get().getServerStatus());
+		server.takeRequest();
+		server.takeRequest();
+		assertEquals("\"v2\"", server.takeRequest().getHeader("If-None-Match"));
+	}
+
+	@Test
+	public void errorClearsValidator() throws Exception
+	{
+		server.enqueue(new MockResponse().setHeader("ETag", "\"v1\"").setBody(STATUS));
+		server.enqueue(new MockResponse().setResponseCode(503));
+		server.enqueue(new MockResponse().setBody(STATUS));
+
+		get();
+		get();
+		get();
+		server.takeRequest();
+		assertEquals("\"v1\"", server.takeRequest().getHeader("If-None-Match"));
+		assertNull(server.takeRequest().getHeader("If-None-Match"));
+	}
+
+	private apiResponse get() throws IOException
+	{
+		Request.Builder request = new Request.Builder().url(server.url("/status"));
+		status.addValidator(request);
+		try (Response response = okHttpClient.newCall(request.build()).execute())
+		{
+			return status.read(response);
+		}
+	}
+}
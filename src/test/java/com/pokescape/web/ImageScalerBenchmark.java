@@ -0,0 +1,62 @@
+package com.pokescape.web;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+// Resizing a frame to 800px with imageScaler against the getScaledInstance resize it replaced
+// fit overwrites its input, so each run starts from a fresh copy of the frame as the pipeline's does
+// Run with ./gradlew jmh --args='ImageScalerBenchmark'
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ImageScalerBenchmark
+{
+	@Param({"765x503", "1920x1080", "2560x1440", "3840x2160"})
+	public String size;
+
+	private final imageScaler scaler = new imageScaler();
+	private BufferedImage frame;
+	private int[] source;
+	private int[] pixels;
+	private int width;
+	private int height;
+
+	@Setup
+	public void setup()
+	{
+		String[] dimensions = size.split("x");
+		width = Integer.parseInt(dimensions[0]);
+		height = Integer.parseInt(dimensions[1]);
+		frame = ScreenshotFixtures.frame(width, height);
+		source = frame.getRGB(0, 0, width, height, null, 0, width);
+		pixels = new int[source.length];
+	}
+
+	@Benchmark
+	public BufferedImage fit()
+	{
+		System.arraycopy(source, 0, pixels, 0, source.length);
+		return scaler.fit(pixels, width, height, 800);
+	}
+
+	@Benchmark
+	public BufferedImage scaledInstance()
+	{
+		return ScreenshotFixtures.scaledInstance(frame, 800);
+	}
+}
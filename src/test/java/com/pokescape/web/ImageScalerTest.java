@@ -0,0 +1,143 @@
+package com.pokescape.web;
+
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ImageScalerTest
+{
+	private final imageScaler scaler = new imageScaler();
+
+	@Test
+	public void widestSideMatchesMaxSize()
+	{
+		assertSize(800, 450, 1600, 900);
+		assertSize(450, 800, 900, 1600);
+		assertSize(800, 800, 1000, 1000);
+		// Fixed mode frames are scaled up
+		assertSize(800, 526, 765, 503);
+		assertSize(800, 400, 100, 50);
+	}
+
+	@Test
+	public void thinEdgesKeepOnePixel()
+	{
+		assertSize(800, 1, 4000, 1);
+		assertSize(1, 800, 1, 4000);
+		assertSize(800, 1, 1000, 1);
+		assertSize(800, 800, 1, 1);
+	}
+
+	@Test
+	public void sameSizeIsUnchanged()
+	{
+		int[] pixels = gradient(800, 450);
+		int[] expected = pixels.clone();
+		BufferedImage image = scaler.fit(pixels, 800, 450, 800);
+		assertEquals(Arrays.toString(expected), Arrays.toString(rgb(image)));
+	}
+
+	@Test
+	public void halvingAveragesEachBlock()
+	{
+		int[] pixels = {
+			0x000000, 0xff0000, 0x0000ff, 0x0000ff,
+			0x00ff00, 0xffffff, 0x0000ff, 0x0000ff
+		};
+		BufferedImage image = scaler.fit(pixels, 4, 2, 2);
+		// Each channel rounds to the nearest value
+		assertEquals(0x808040, image.getRGB(0, 0) & 0xffffff);
+		assertEquals(0x0000ff, image.getRGB(1, 0) & 0xffffff);
+	}
+
+	@Test
+	public void flatColorStaysFlat()
+	{
+		for (int[] size : new int[][]{{1920, 1080}, {1000, 3}, {765, 503}, {2, 2}})
+		{
+			int[] pixels = new int[size[0] * size[1]];
+			Arrays.fill(pixels, 0x336699);
+			for (int pixel : rgb(scaler.fit(pixels, size[0], size[1], 800)))
+			{
+				assertEquals(0x336699, pixel);
+			}
+		}
+	}
+
+	@Test
+	public void edgesAreNotSmearedPastTheFrame()
+	{
+		// A red first row and column with the rest black, scaled up the corner stays red
+		int[] pixels = new int[10 * 10];
+		for (int i = 0; i < 10; i++)
+		{
+			pixels[i] = 0xff0000;
+			pixels[i * 10] = 0xff0000;
+		}
+		BufferedImage image = scaler.fit(pixels, 10, 10, 800);
+		assertEquals(0xff0000, image.getRGB(0, 0) & 0xffffff);
+		assertEquals(0x000000, image.getRGB(799, 799) & 0xffffff);
+	}
+
+	@Test
+	public void matchesTheScaledInstanceItReplaced()
+	{
+		for (int[] size : new int[][]{{765, 503}, {1920, 1080}, {2560, 1440}, {1080, 1920}})
+		{
+			BufferedImage frame = ScreenshotFixtures.frame(size[0], size[1]);
+			BufferedImage expected = ScreenshotFixtures.scaledInstance(frame, 800);
+			int[] pixels = frame.getRGB(0, 0, size[0], size[1], null, 0, size[0]);
+			BufferedImage actual = scaler.fit(pixels, size[0], size[1], 800);
+
+			assertEquals(expected.getWidth(), actual.getWidth());
+			assertEquals(expected.getHeight(), actual.getHeight());
+			// Mean difference per channel out of 255, the filters differ slightly so the output can't be identical
+			double difference = meanDifference(expected, actual);
+			assertTrue(size[0] + "x" + size[1] + " differs by " + difference, difference < 2);
+		}
+	}
+
+	private static double meanDifference(BufferedImage expected, BufferedImage actual)
+	{
+		long difference = 0;
+		for (int y = 0; y < expected.getHeight(); y++)
+		{
+			for (int x = 0; x < expected.getWidth(); x++)
+			{
+				int a = expected.getRGB(x, y);
+				int b = actual.getRGB(x, y);
+				difference += Math.abs((a >> 16 & 0xff) - (b >> 16 & 0xff)) + Math.abs((a >> 8 & 0xff) - (b >> 8 & 0xff)) + Math.abs((a & 0xff) - (b & 0xff));
+			}
+		}
+		return (double) difference / (expected.getWidth() * expected.getHeight() * 3);
+	}
+
+	private void assertSize(int expectedWidth, int expectedHeight, int width, int height)
+	{
+		BufferedImage image = scaler.fit(gradient(width, height), width, height, 800);
+		assertEquals(width + "x" + height, expectedWidth + "x" + expectedHeight, image.getWidth() + "x" + image.getHeight());
+	}
+
+	private static int[] gradient(int width, int height)
+	{
+		int[] pixels = new int[width * height];
+		for (int y = 0; y < height; y++)
+		{
+			for (int x = 0; x < width; x++)
+			{
+				pixels[y * width + x] = (x & 0xff) << 16 | (y & 0xff) << 8 | ((x + y) & 0xff);
+			}
+		}
+		return pixels;
+	}
+
+	private static int[] rgb(BufferedImage image)
+	{
+		int[] pixels = image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+		for (int i = 0; i < pixels.length; i++) pixels[i] &= 0xffffff;
+		return pixels;
+	}
+}
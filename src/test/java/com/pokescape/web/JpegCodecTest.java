@@ -0,0 +1,110 @@
+package com.pokescape.web;
+
+import org.junit.Test;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class JpegCodecTest
+{
+	@Test
+	public void roundTrip() throws IOException
+	{
+		BufferedImage image = gradient(320, 200);
+		for (boolean subsampling : new boolean[]{false, true})
+		{
+			BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(new jpegCodec(0.9f, subsampling).encode(image)));
+			assertEquals(320, decoded.getWidth());
+			assertEquals(200, decoded.getHeight());
+			assertTrue("mean error " + meanError(image, decoded), meanError(image, decoded) < 4);
+		}
+	}
+
+	@Test
+	public void subsamplingFollowsTheSetting() throws IOException
+	{
+		BufferedImage image = gradient(64, 64);
+		assertEquals("1x1 1x1 1x1", samplingFactors(new jpegCodec(0.9f, false).encode(image)));
+		assertEquals("2x2 1x1 1x1", samplingFactors(new jpegCodec(0.9f, true).encode(image)));
+	}
+
+	@Test
+	public void lowerQualityIsSmaller() throws IOException
+	{
+		BufferedImage image = gradient(320, 200);
+		assertTrue(new jpegCodec(0.3f, false).encode(image).length < new jpegCodec(0.95f, false).encode(image).length);
+	}
+
+	@Test
+	public void encodesScalerOutput() throws IOException
+	{
+		int[] pixels = new int[1600 * 900];
+		Arrays.fill(pixels, 0x336699);
+		BufferedImage image = new imageScaler().fit(pixels, 1600, 900, 800);
+		BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(new jpegCodec(0.85f, false).encode(image)));
+		assertEquals(800, decoded.getWidth());
+		assertEquals(450, decoded.getHeight());
+		assertTrue(meanError(image, decoded) < 2);
+	}
+
+	private static String samplingFactors(byte[] jpeg) throws IOException
+	{
+		ImageReader reader = ImageIO.getImageReadersByFormatName("jpeg").next();
+		try (ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(jpeg)))
+		{
+			reader.setInput(in);
+			Element tree = (Element) reader.getImageMetadata(0).getAsTree("javax_imageio_jpeg_image_1.0");
+			NodeList components = tree.getElementsByTagName("componentSpec");
+			StringBuilder factors = new StringBuilder();
+			for (int i = 0; i < components.getLength(); i++)
+			{
+				Element component = (Element) components.item(i);
+				if (i > 0) factors.append(' ');
+				factors.append(component.getAttribute("HsamplingFactor")).append('x').append(component.getAttribute("VsamplingFactor"));
+			}
+			return factors.toString();
+		}
+		finally
+		{
+			reader.dispose();
+		}
+	}
+
+	private static double meanError(BufferedImage expected, BufferedImage actual)
+	{
+		long error = 0;
+		for (int y = 0; y < expected.getHeight(); y++)
+		{
+			for (int x = 0; x < expected.getWidth(); x++)
+			{
+				int a = expected.getRGB(x, y);
+				int b = actual.getRGB(x, y);
+				error += Math.abs((a >> 16 & 0xff) - (b >> 16 & 0xff)) + Math.abs((a >> 8 & 0xff) - (b >> 8 & 0xff)) + Math.abs((a & 0xff) - (b & 0xff));
+			}
+		}
+		return (double) error / (expected.getWidth() * expected.getHeight() * 3);
+	}
+
+	// Smooth enough that JPEG should reproduce it closely
+	private static BufferedImage gradient(int width, int height)
+	{
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		for (int y = 0; y < height; y++)
+		{
+			for (int x = 0; x < width; x++)
+			{
+				image.setRGB(x, y, (x * 255 / width) << 16 | (y * 255 / height) << 8 | 0x80);
+			}
+		}
+		return image;
+	}
+}
@@ -0,0 +1,152 @@
+package com.pokescape.web;
+
+import okhttp3.MultipartBody;
+import okhttp3.MultipartReader;
+import okio.Buffer;
+import okio.GzipSource;
+import okio.Okio;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PayloadEncoderTest
+{
+	private static final String SMALL = "{\"rsn\":\"Zezima\"}";
+	private static final String LARGE = "{\"gameMsg\":[\"" + String.join("\",\"", Collections.nCopies(100, "Your Barrows chest count is: 1.")) + "\"]}";
+
+	@Test
+	public void plainPayloadWhenGzipIsOff() throws IOException
+	{
+		payloadEncoder encoder = new payloadEncoder();
+		assertEquals(Collections.singletonMap("payload_json", LARGE), parts(encoder, LARGE));
+	}
+
+	@Test
+	public void gzipRoundTrip() throws IOException
+	{
+		payloadEncoder encoder = new payloadEncoder();
+		encoder.setGzipPayload(true);
+		assertEquals(Collections.singletonMap("payload_json_gz", LARGE), parts(encoder, LARGE));
+		// Small payloads aren't worth compressing
+		assertEquals(Collections.singletonMap("payload_json", SMALL), parts(encoder, SMALL));
+	}
+
+	@Test
+	public void streamedBodyRoundTrip() throws IOException
+	{
+		postBody body = new postBody();
+		body.setRsn("Zezima");
+		body.setGameMsg(Arrays.asList("You have a funny feeling like you're being followed.", "<col=ef1020>Valuable drop</col>"));
+		String json = postBodyWriter.toJson(body);
+
+		payloadEncoder encoder = new payloadEncoder();
+		assertEquals(Collections.singletonMap("payload_json", json), parts(encoder, body));
+		encoder.setGzipPayload(true);
+		assertEquals(Collections.singletonMap("payload_json_gz", json), parts(encoder, body));
+
+		// Only bodies carrying messages or event info are compressed
+		postBody profile = new postBody();
+		profile.setRsn("Zezima");
+		assertEquals(Collections.singletonMap("payload_json", postBodyWriter.toJson(profile)), parts(encoder, profile));
+	}
+
+	@Test
+	public void streamedBodyCanBeWrittenAgain() throws IOException
+	{
+		postBody body = new postBody();
+		body.setGameMsg(Collections.singletonList("Oh dear, you are dead!"));
+		payloadEncoder encoder = new payloadEncoder();
+		encoder.setGzipPayload(true);
+		MultipartBody.Builder builder = new MultipartBody.Builder().setType(MultipartBody.FORM);
+		encoder.addPayload(builder, body);
+		MultipartBody multipart = builder.build();
+
+		// A retried request writes the same body a second time
+		assertEquals(read(multipart), read(multipart));
+	}
+
+	@Test
+	public void typicalLootPayloadShrinks() throws IOException
+	{
+		// A raid loot submission with the chat messages collected around it
+		postBody body = new postBody();
+		body.setRsn("Zezima");
+		body.setClientHash("7318473621458760123");
+		body.setPluginVersion("1.0.0");
+		body.setCurrentWorld(302);
+		body.setNpcName("Chambers of Xeric");
+		body.setLootName(Arrays.asList("Dexterous prayer scroll", "Dragon bones", "Soul rune", "Pure essence", "Dynamite"));
+		body.setLootID(Arrays.asList(21034, 536, 566, 7936, 13573));
+		body.setLootQuantity(Arrays.asList(1, 24, 412, 3108, 60));
+		List<String> messages = new ArrayList<>();
+		for (int i = 0; i < 40; i++)
+		{
+			messages.add("<col=ef20ff>Congratulations - your raid is complete!</col> Team size: <col=ff0000>" + (i % 5 + 1) + "</col> Duration: <col=ff0000>2" + i + ":1" + (i % 10) + "</col>");
+		}
+		body.setGameMsg(messages);
+
+		payloadEncoder encoder = new payloadEncoder();
+		int plain = encodedSize(encoder, body);
+		encoder.setGzipPayload(true);
+		int compressed = encodedSize(encoder, body);
+		// 5559 bytes plain, 720 gzipped, both including the multipart framing
+		assertTrue(plain + " -> " + compressed, compressed * 4 < plain);
+	}
+
+	private static int encodedSize(payloadEncoder encoder, postBody body) throws IOException
+	{
+		MultipartBody.Builder builder = new MultipartBody.Builder().setType(MultipartBody.FORM);
+		encoder.addPayload(builder, body);
+		Buffer encoded = new Buffer();
+		builder.build().writeTo(encoded);
+		return (int) encoded.size();
+	}
+
+	private static Map<String, String> parts(payloadEncoder encoder, String payload) throws IOException
+	{
+		MultipartBody.Builder builder = new MultipartBody.Builder().setType(MultipartBody.FORM);
+		encoder.addPayload(builder, payload);
+		return read(builder.build());
+	}
+
+	private static Map<String, String> parts(payloadEncoder encoder, postBody body) throws IOException
+	{
+		MultipartBody.Builder builder = new MultipartBody.Builder().setType(MultipartBody.FORM);
+		encoder.addPayload(builder, body);
+		return read(builder.build());
+	}
+
+	// Decodes each part the way the server does, gunzipping the _gz parts
+	private static Map<String, String> read(MultipartBody multipart) throws IOException
+	{
+		Buffer encoded = new Buffer();
+		multipart.writeTo(encoded);
+		Map<String, String> parts = new LinkedHashMap<>();
+		try (MultipartReader reader = new MultipartReader(encoded, multipart.boundary()))
+		{
+			MultipartReader.Part part;
+			while ((part = reader.nextPart()) != null)
+			{
+				String disposition = part.headers().get("Content-Disposition");
+				String name = disposition.substring(disposition.indexOf("name=\"") + 6, disposition.indexOf('"', disposition.indexOf("name=\"") + 6));
+				Buffer content = new Buffer();
+				content.writeAll(part.body());
+				if (name.endsWith("_gz"))
+				{
+					assertTrue(disposition.contains("filename=\"payload.json.gz\""));
+					parts.put(name, Okio.buffer(new GzipSource(content)).readUtf8());
+				}
+				else parts.put(name, content.readUtf8());
+			}
+		}
+		return parts;
+	}
+}
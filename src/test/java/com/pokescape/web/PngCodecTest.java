@@ -0,0 +1,90 @@
+package com.pokescape.web;
+
+import org.junit.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Random;
+import static org.junit.Assert.assertEquals;
+
+public class PngCodecTest
+{
+	// The color type byte of the IHDR chunk, after the signature, chunk header, width, height and bit depth
+	private static final int COLOR_TYPE_OFFSET = 25;
+	private static final int COLOR_RGB = 2;
+
+	@Test
+	public void truecolorRoundTrip() throws IOException
+	{
+		BufferedImage image = noise(257, 93, 1 << 24);
+		assertSamePixels(image, pngCodec.INSTANCE.encode(image));
+	}
+
+	@Test
+	public void edgeSizesRoundTrip() throws IOException
+	{
+		for (int[] size : new int[][]{{1, 1}, {1, 600}, {600, 1}, {3, 2}})
+		{
+			BufferedImage image = noise(size[0], size[1], 1 << 24);
+			assertSamePixels(image, pngCodec.INSTANCE.encode(image));
+		}
+	}
+
+	@Test
+	public void otherImageTypesRoundTrip() throws IOException
+	{
+		BufferedImage source = noise(64, 48, 1 << 24);
+		for (int type : new int[]{BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_INT_BGR, BufferedImage.TYPE_INT_ARGB})
+		{
+			BufferedImage image = new BufferedImage(64, 48, type);
+			image.getGraphics().drawImage(source, 0, 0, null);
+			assertSamePixels(image, pngCodec.INSTANCE.encode(image));
+		}
+	}
+
+	@Test
+	public void encodesScalerOutput() throws IOException
+	{
+		int[] pixels = new int[1600 * 900];
+		Random random = new Random(7);
+		for (int i = 0; i < pixels.length; i++) pixels[i] = random.nextInt(1 << 24);
+		BufferedImage image = new imageScaler().fit(pixels, 1600, 900, 800);
+		byte[] png = pngCodec.INSTANCE.encode(image);
+		// The scaler's images have no alpha channel, so none is written
+		assertEquals(COLOR_RGB, png[COLOR_TYPE_OFFSET]);
+		assertSamePixels(image, png);
+	}
+
+	private static void assertSamePixels(BufferedImage expected, byte[] png) throws IOException
+	{
+		BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(png));
+		assertEquals(expected.getWidth(), decoded.getWidth());
+		assertEquals(expected.getHeight(), decoded.getHeight());
+		for (int y = 0; y < expected.getHeight(); y++)
+		{
+			for (int x = 0; x < expected.getWidth(); x++)
+			{
+				assertEquals(x + "," + y, expected.getRGB(x, y) & 0xffffff, decoded.getRGB(x, y) & 0xffffff);
+			}
+		}
+	}
+
+	// Random pixels drawn from the given number of colors
+	private static BufferedImage noise(int width, int height, int colors)
+	{
+		Random random = new Random(width * 31 + height);
+		int[] table = new int[Math.min(colors, 1 << 12)];
+		for (int i = 0; i < table.length; i++) table[i] = random.nextInt(1 << 24);
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		for (int y = 0; y < height; y++)
+		{
+			for (int x = 0; x < width; x++)
+			{
+				image.setRGB(x, y, (colors > table.length) ? random.nextInt(1 << 24) : table[random.nextInt(table.length)]);
+			}
+		}
+		return image;
+	}
+}
@@ -0,0 +1,44 @@
+package com.pokescape.web;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import net.runelite.api.WorldType;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import static net.runelite.http.api.RuneLiteAPI.GSON;
+import static org.junit.Assert.assertEquals;
+
+public class PostBodyWriterTest
+{
+	@Test
+	public void matchesReflectiveSerialization()
+	{
+		postBody body = new postBody();
+		body.setRsn("Zezima");
+		body.setCurrentWorld(302);
+		body.setWorldTypes(EnumSet.of(WorldType.MEMBERS, WorldType.PVP));
+		JsonObject activities = new JsonObject();
+		activities.addProperty("tempoross", 3);
+		body.setRecentActivities(activities);
+		body.setChatboxVisible(true);
+		body.setLootName(Arrays.asList("Bones", null));
+		body.setLootID(Arrays.asList(526, 995));
+		body.setGameMsg(Arrays.asList("You have a funny feeling like you're being followed."));
+		body.setValidEvents(new JsonArray());
+		body.setSyncManifest(new JsonObject());
+
+		// Gson also escapes HTML characters, compare the parsed values
+		assertEquals(JsonParser.parseString(GSON.toJson(body)), JsonParser.parseString(postBodyWriter.toJson(body)));
+	}
+
+	@Test
+	public void omitsNullFields()
+	{
+		postBody body = new postBody();
+		assertEquals(GSON.toJson(body), postBodyWriter.toJson(body));
+		assertEquals("{\"eventPasswordVisible\":false,\"chatboxVisible\":false}", postBodyWriter.toJson(body));
+	}
+}
@@ -0,0 +1,71 @@
+package com.pokescape.web;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// Encoding the scaled screenshot with each codec setting, across the client sizes frames are taken at
+// The encoded sizes are printed during setup
+// Run with ./gradlew jmh --args='ScreenshotCodecBenchmark'
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ScreenshotCodecBenchmark
+{
+	@Param({"765x503", "1920x1080", "2560x1440"})
+	public String size;
+
+	@Param({"png", "jpeg-90", "jpeg-90-subsampled", "jpeg-75"})
+	public String codec;
+
+	private BufferedImage image;
+	private screenshotCodec encoder;
+
+	@Setup
+	public void setup() throws IOException
+	{
+		String[] dimensions = size.split("x");
+		int width = Integer.parseInt(dimensions[0]);
+		int height = Integer.parseInt(dimensions[1]);
+		int[] pixels = ScreenshotFixtures.frame(width, height).getRGB(0, 0, width, height, null, 0, width);
+		image = new imageScaler().fit(pixels, width, height, 800);
+		encoder = codec(codec);
+		System.out.println(size + " " + codec + ": " + encoder.encode(image).length + " bytes");
+	}
+
+	@Benchmark
+	public byte[] encode() throws IOException
+	{
+		return encoder.encode(image);
+	}
+
+	private static screenshotCodec codec(String name)
+	{
+		switch (name)
+		{
+			case "jpeg-90":
+				return new jpegCodec(0.9f, false);
+			case "jpeg-90-subsampled":
+				return new jpegCodec(0.9f, true);
+			case "jpeg-75":
+				return new jpegCodec(0.75f, false);
+			default:
+				return pngCodec.INSTANCE;
+		}
+	}
+}
@@ -0,0 +1,74 @@
+package com.pokescape.web;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+// Frames that look enough like the game for the scaler and codec measurements,
+// and the screenshot path the plugin used before the pipeline for comparison
+final class ScreenshotFixtures
+{
+	private ScreenshotFixtures()
+	{
+	}
+
+	// Sky gradient, noisy terrain, flat interface panels and chat text, the same for the same size
+	static BufferedImage frame(int width, int height)
+	{
+		BufferedImage frame = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		Random random = new Random(width * 31L + height);
+		Graphics2D graphics = frame.createGraphics();
+		graphics.setPaint(new GradientPaint(0, 0, new Color(0x5a7fb0), 0, height / 2f, new Color(0xc9d6e3)));
+		graphics.fillRect(0, 0, width, height / 2);
+		for (int y = height / 2; y < height; y++)
+		{
+			for (int x = 0; x < width; x++)
+			{
+				int shade = 70 + random.nextInt(40);
+				frame.setRGB(x, y, (shade / 2) << 16 | shade << 8 | (shade / 3));
+			}
+		}
+		// Chatbox and inventory panels
+		graphics.setColor(new Color(0xc8b99a));
+		graphics.fillRect(0, height - height / 4, width / 2, height / 4);
+		graphics.fillRect(width - width / 5, height - height / 2, width / 5, height / 2);
+		graphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_OFF);
+		graphics.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, 12));
+		for (int line = 0; line < 8; line++)
+		{
+			graphics.setColor((line % 3 == 0) ? new Color(0xef1020) : Color.BLACK);
+			graphics.drawString("Your Barrows chest count is: " + (1000 + line), 6, height - height / 4 + 16 + line * 14);
+		}
+		graphics.dispose();
+		return frame;
+	}
+
+	// The resize the plugin did before imageScaler
+	static BufferedImage scaledInstance(BufferedImage screenshot, int maxSize)
+	{
+		Image resized = (screenshot.getWidth() > screenshot.getHeight())
+			? screenshot.getScaledInstance(maxSize, -1, Image.SCALE_SMOOTH)
+			: screenshot.getScaledInstance(-1, maxSize, Image.SCALE_SMOOTH);
+		BufferedImage image = new BufferedImage(resized.getWidth(null), resized.getHeight(null), BufferedImage.TYPE_INT_ARGB);
+		Graphics2D graphics = image.createGraphics();
+		graphics.drawImage(resized, 0, 0, null);
+		graphics.dispose();
+		return image;
+	}
+
+	// The encode the plugin did before the codecs
+	static byte[] imageIoPng(BufferedImage image) throws IOException
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ImageIO.write(image, "png", out);
+		return out.toByteArray();
+	}
+}
@@ -0,0 +1,76 @@
+package com.pokescape.web;
+
+import net.runelite.client.ui.DrawManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// Time a screenshot takes away from the frame it's taken on
+// The pipeline only copies the pixels there, before it the frame was resized and encoded in the frame listener
+// The encoder thread keeps working while the pipeline is measured, on a single core it competes with the render path
+// Run with ./gradlew jmh --args='ScreenshotPipelineBenchmark'
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ScreenshotPipelineBenchmark
+{
+	@Param({"765x503", "1920x1080"})
+	public String size;
+
+	private BufferedImage frame;
+	private Consumer<Image> listener;
+	private screenshotPipeline pipeline;
+
+	@Setup
+	public void setup()
+	{
+		String[] dimensions = size.split("x");
+		frame = ScreenshotFixtures.frame(Integer.parseInt(dimensions[0]), Integer.parseInt(dimensions[1]));
+		pipeline = new screenshotPipeline(null, new DrawManager()
+		{
+			@Override
+			public void requestNextFrameListener(Consumer<Image> nextFrameListener)
+			{
+				listener = nextFrameListener;
+			}
+		}, null);
+		pipeline.startUp();
+	}
+
+	@TearDown
+	public void tearDown()
+	{
+		pipeline.shutDown();
+	}
+
+	@Benchmark
+	public void pipeline()
+	{
+		pipeline.capture(screenshot -> { });
+		listener.accept(frame);
+	}
+
+	@Benchmark
+	public byte[] frameListener() throws IOException
+	{
+		return ScreenshotFixtures.imageIoPng(ScreenshotFixtures.scaledInstance(frame, 800));
+	}
+}
@@ -0,0 +1,180 @@
+package com.pokescape.web;
+
+import net.runelite.api.Client;
+import net.runelite.client.ui.DrawManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.Image;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ScreenshotPipelineTest
+{
+	private final frameSource frames = new frameSource();
+	private final screenshotPipeline pipeline = new screenshotPipeline(canvas(1000, 600), frames, null);
+
+	@Before
+	public void before()
+	{
+		pipeline.startUp();
+	}
+
+	@After
+	public void after()
+	{
+		pipeline.shutDown();
+	}
+
+	@Test
+	public void requestsBeforeTheFrameShareOneCapture() throws Exception
+	{
+		CountDownLatch done = new CountDownLatch(2);
+		List<screenshotPipeline.encoded> uploads = new ArrayList<>();
+		pipeline.capture(screenshot -> { uploads.add(screenshot); done.countDown(); });
+		pipeline.capture(screenshot -> { uploads.add(screenshot); done.countDown(); });
+		assertEquals(1, frames.listeners.size());
+
+		frames.deliver();
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		assertSame(uploads.get(0), uploads.get(1));
+		assertEquals("image/png", uploads.get(0).getMediaType());
+	}
+
+	@Test
+	public void framesAreDroppedWhileTheEncoderIsBusy() throws Exception
+	{
+		CountDownLatch encoding = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger uploaded = new AtomicInteger();
+		CountDownLatch done = new CountDownLatch(3);
+
+		// The first upload holds the encoder thread until the test lets it go
+		pipeline.capture(screenshot -> {
+			encoding.countDown();
+			awaitQuietly(release);
+			uploaded.incrementAndGet();
+			done.countDown();
+		});
+		frames.deliver();
+		assertTrue(encoding.await(5, TimeUnit.SECONDS));
+
+		// Two frames wait behind it, the rest are dropped without blocking the render path
+		for (int i = 0; i < 5; i++)
+		{
+			pipeline.capture(screenshot -> { uploaded.incrementAndGet(); done.countDown(); });
+			frames.deliver();
+		}
+
+		release.countDown();
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		pipeline.shutDown();
+		assertEquals(3, uploaded.get());
+	}
+
+	@Test
+	public void requestsForTheSameRegionsShareOneCrop() throws Exception
+	{
+		CountDownLatch done = new CountDownLatch(3);
+		List<screenshotPipeline.encoded> uploads = new ArrayList<>();
+		pipeline.capture(() -> Arrays.asList(new Rectangle(10, 10, 100, 50), new Rectangle(200, 300, 80, 40)), screenshot -> { uploads.add(screenshot); done.countDown(); });
+		pipeline.capture(() -> Arrays.asList(new Rectangle(10, 10, 100, 50), new Rectangle(200, 300, 80, 40)), screenshot -> { uploads.add(screenshot); done.countDown(); });
+		pipeline.capture(() -> Arrays.asList(new Rectangle(10, 10, 100, 50)), screenshot -> { uploads.add(screenshot); done.countDown(); });
+
+		frames.deliver(1000, 600);
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		// Encoded in order, the shared crop first
+		assertSame(uploads.get(0), uploads.get(1));
+		assertEquals(100, decode(uploads.get(0)).getWidth());
+		assertEquals(90, decode(uploads.get(0)).getHeight());
+		assertEquals(50, decode(uploads.get(2)).getHeight());
+	}
+
+	@Test
+	public void cropsOverTheMaxSizeAreScaledDown() throws Exception
+	{
+		CountDownLatch done = new CountDownLatch(1);
+		List<screenshotPipeline.encoded> uploads = new ArrayList<>();
+		pipeline.capture(() -> Arrays.asList(new Rectangle(0, 0, 900, 200), new Rectangle(50, 250, 600, 300)), screenshot -> { uploads.add(screenshot); done.countDown(); });
+
+		frames.deliver(1000, 600);
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		// The 900x500 mosaic is fit within 800px
+		BufferedImage image = decode(uploads.get(0));
+		assertEquals(800, image.getWidth());
+		assertEquals(444, image.getHeight());
+	}
+
+	private static BufferedImage decode(screenshotPipeline.encoded screenshot) throws Exception
+	{
+		return ImageIO.read(new ByteArrayInputStream(screenshot.getData()));
+	}
+
+	// A client whose canvas is the given size, regions are mapped to the frame through it
+	private static Client canvas(int width, int height)
+	{
+		return (Client) Proxy.newProxyInstance(Client.class.getClassLoader(), new Class<?>[]{Client.class}, (proxy, method, args) ->
+		{
+			switch (method.getName())
+			{
+				case "getCanvasWidth":
+					return width;
+				case "getCanvasHeight":
+					return height;
+				default:
+					throw new UnsupportedOperationException(method.getName());
+			}
+		});
+	}
+
+	private static void awaitQuietly(CountDownLatch latch)
+	{
+		try
+		{
+			latch.await(5, TimeUnit.SECONDS);
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	// Hands frames to the registered listeners the way the client does on the next draw
+	private static class frameSource extends DrawManager
+	{
+		private final List<Consumer<Image>> listeners = new ArrayList<>();
+
+		@Override
+		public void requestNextFrameListener(Consumer<Image> nextFrameListener)
+		{
+			listeners.add(nextFrameListener);
+		}
+
+		private void deliver()
+		{
+			deliver(40, 30);
+		}
+
+		private void deliver(int width, int height)
+		{
+			BufferedImage frame = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+			List<Consumer<Image>> next = new ArrayList<>(listeners);
+			listeners.clear();
+			next.forEach(listener -> listener.accept(frame));
+		}
+	}
+}
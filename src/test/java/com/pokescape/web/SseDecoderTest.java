@@ -0,0 +1,162 @@
+package com.pokescape.web;
+
+import okio.Buffer;
+import okio.Okio;
+import okio.Source;
+import okio.Timeout;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+
+public class SseDecoderTest
+{
+	// A recorded stream with heartbeats, multi-line data, ids, retries and a trailing unterminated event
+	private static final String[] RECORDED = {
+		": connected",
+		"retry: 3000",
+		"",
+		"event: sync",
+		"id: 41",
+		"data: {\"sections\":[\"events\"]}",
+		"",
+		": heartbeat",
+		"data: first line",
+		"data:second line",
+		"data",
+		"",
+		"event: profile",
+		"id: 42",
+		"data: {\"rsn\":\"Zézima ✓\"}",
+		"unknown: ignored",
+		"",
+		"",
+		"event: empty",
+		"",
+		"id: 43",
+		"data: unterminated"
+	};
+
+	private static final List<String> EXPECTED = Arrays.asList(
+		"retry 3000",
+		"41 sync {\"sections\":[\"events\"]}",
+		"41 message first line\nsecond line\n",
+		"42 profile {\"rsn\":\"Zézima ✓\"}"
+	);
+
+	@Test
+	public void decodesEveryLineTerminator() throws IOException
+	{
+		for (String terminator : new String[]{"\n", "\r", "\r\n"})
+		{
+			assertEquals(EXPECTED, decode(Arrays.asList(stream(terminator))));
+		}
+	}
+
+	@Test
+	public void mixedLineTerminators() throws IOException
+	{
+		byte[] mixed = "data: a\rdata: b\r\n\ndata: c\n\r\r\ndata: d\r\n\r".getBytes(StandardCharsets.UTF_8);
+		assertEquals(Arrays.asList("null message a\nb", "null message c", "null message d"), decode(Arrays.asList(mixed)));
+	}
+
+	@Test
+	public void splitAtEveryOffset() throws IOException
+	{
+		for (String terminator : new String[]{"\n", "\r", "\r\n"})
+		{
+			byte[] stream = stream(terminator);
+			for (int offset = 1; offset < stream.length; offset++)
+			{
+				List<byte[]> reads = Arrays.asList(Arrays.copyOfRange(stream, 0, offset), Arrays.copyOfRange(stream, offset, stream.length));
+				assertEquals("split at " + offset, EXPECTED, decode(reads));
+			}
+		}
+	}
+
+	@Test
+	public void oneByteReads() throws IOException
+	{
+		for (String terminator : new String[]{"\n", "\r", "\r\n"})
+		{
+			byte[] stream = stream(terminator);
+			List<byte[]> reads = new ArrayList<>();
+			for (int i = 0; i < stream.length; i++) reads.add(new byte[]{stream[i]});
+			assertEquals(EXPECTED, decode(reads));
+		}
+	}
+
+	@Test
+	public void resumesFromLastEventId() throws IOException
+	{
+		List<String> events = new ArrayList<>();
+		sseDecoder decoder = new sseDecoder("40");
+		decoder.decode(Okio.buffer(new chunkedSource(Arrays.asList(stream("\n")))), listener(events));
+		assertEquals("43", decoder.getLastEventId());
+	}
+
+	private static byte[] stream(String terminator)
+	{
+		return (String.join(terminator, RECORDED)).getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static List<String> decode(List<byte[]> reads) throws IOException
+	{
+		List<String> events = new ArrayList<>();
+		new sseDecoder(null).decode(Okio.buffer(new chunkedSource(reads)), listener(events));
+		return events;
+	}
+
+	private static sseDecoder.listener listener(List<String> events)
+	{
+		return new sseDecoder.listener()
+		{
+			@Override
+			public void onEvent(String id, String type, String data)
+			{
+				events.add(id + " " + type + " " + data);
+			}
+			@Override
+			public void onRetry(long retryMs)
+			{
+				events.add("retry " + retryMs);
+			}
+		};
+	}
+
+	// Hands out each chunk in its own read, the way frames arrive from the network
+	private static class chunkedSource implements Source
+	{
+		private final List<byte[]> reads;
+		private int next;
+
+		private chunkedSource(List<byte[]> reads)
+		{
+			this.reads = reads;
+		}
+
+		@Override
+		public long read(Buffer sink, long byteCount)
+		{
+			if (next == reads.size()) return -1;
+			byte[] chunk = reads.get(next++);
+			sink.write(chunk);
+			return chunk.length;
+		}
+
+		@Override
+		public Timeout timeout()
+		{
+			return Timeout.NONE;
+		}
+
+		@Override
+		public void close()
+		{
+		}
+	}
+}
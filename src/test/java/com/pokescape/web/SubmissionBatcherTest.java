@@ -0,0 +1,196 @@
+package com.pokescape.web;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SubmissionBatcherTest
+{
+	private static final int FAILED = -1;
+
+	private final MockWebServer server = new MockWebServer();
+	private submissionBatcher batcher;
+
+	@Before
+	public void before() throws IOException
+	{
+		server.start();
+		// Send the requests meant for the API to the mock server instead
+		OkHttpClient okHttpClient = new OkHttpClient.Builder()
+			.addInterceptor(chain -> chain.proceed(chain.request().newBuilder().url(server.url(chain.request().url().encodedPath())).build()))
+			.build();
+		batcher = new submissionBatcher(okHttpClient, new payloadEncoder());
+		batcher.setCapability(true, 100);
+		batcher.startUp();
+	}
+
+	@After
+	public void after() throws IOException
+	{
+		batcher.shutDown();
+		server.shutdown();
+	}
+
+	@Test
+	public void resultsFollowSubmissionOrder() throws Exception
+	{
+		server.enqueue(new MockResponse().setBody("{\"results\":[{\"code\":210},{\"code\":211},null]}"));
+
+		AtomicIntegerArray codes = new AtomicIntegerArray(3);
+		CountDownLatch done = new CountDownLatch(3);
+		for (int i = 0; i < 3; i++)
+		{
+			int index = i;
+			batcher.submit("/loot", "key" + i, "{\"index\":" + i + "}", () -> { throw new AssertionError("sent alone"); }, new submissionBatcher.resultHandler()
+			{
+				@Override
+				public void onResult(int code, apiResponse responseBody)
+				{
+					codes.set(index, code);
+					done.countDown();
+				}
+				@Override
+				public void onFailure()
+				{
+					codes.set(index, FAILED);
+					done.countDown();
+				}
+			});
+		}
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+
+		RecordedRequest request = server.takeRequest();
+		assertEquals("/batch", request.getPath());
+		String body = request.getBody().readUtf8();
+		assertTrue(body.indexOf("\"key0\"") < body.indexOf("\"key1\""));
+		assertTrue(body.indexOf("\"key1\"") < body.indexOf("\"key2\""));
+		assertTrue(body.contains("{\"route\":\"/loot\",\"key\":\"key0\",\"body\":{\"index\":0}}"));
+
+		assertEquals(210, codes.get(0));
+		assertEquals(211, codes.get(1));
+		// A submission without a result stays in the outbox
+		assertEquals(FAILED, codes.get(2));
+	}
+
+	@Test
+	public void burstIsSentInFullBatches() throws Exception
+	{
+		// Answers every batch with one result per submission it carries
+		server.setDispatcher(new Dispatcher()
+		{
+			@Override
+			public MockResponse dispatch(RecordedRequest request)
+			{
+				String body = request.getBody().readUtf8();
+				int submissions = body.split("\\{\"route\":", -1).length - 1;
+				return new MockResponse().setBody("{\"results\":[" + String.join(",", Collections.nCopies(submissions, "{\"code\":200}")) + "]}");
+			}
+		});
+
+		// A raid completion can produce dozens of loot and event submissions in one tick
+		int burst = 40;
+		CountDownLatch done = new CountDownLatch(burst);
+		AtomicInteger delivered = new AtomicInteger();
+		for (int i = 0; i < burst; i++)
+		{
+			batcher.submit("/loot", "key" + i, "{}", () -> { throw new AssertionError("sent alone"); }, new submissionBatcher.resultHandler()
+			{
+				@Override
+				public void onResult(int code, apiResponse responseBody)
+				{
+					delivered.incrementAndGet();
+					done.countDown();
+				}
+				@Override
+				public void onFailure()
+				{
+					done.countDown();
+				}
+			});
+		}
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		assertEquals(burst, delivered.get());
+		// 16 + 16 + 8 instead of 40 requests
+		assertEquals(3, server.getRequestCount());
+	}
+
+	@Test
+	public void windowFollowsHalfTheRoundTrip() throws Exception
+	{
+		assertEquals(100, batcher.window());
+		batcher.recordRoundTrip(120);
+		assertEquals(60, batcher.window());
+		// Concurrent callbacks all fold into the average
+		Thread[] threads = new Thread[8];
+		for (int i = 0; i < threads.length; i++)
+		{
+			threads[i] = new Thread(() -> { for (int j = 0; j < 10000; j++) batcher.recordRoundTrip(1000); });
+			threads[i].start();
+		}
+		for (Thread thread : threads) thread.join();
+		// Capped at the window the server allows
+		assertEquals(100, batcher.window());
+	}
+
+	@Test
+	public void notFoundFallsBackToSingleRequests() throws Exception
+	{
+		fallsBackToSingleRequests(404);
+	}
+
+	@Test
+	public void methodNotAllowedFallsBackToSingleRequests() throws Exception
+	{
+		fallsBackToSingleRequests(405);
+	}
+
+	private void fallsBackToSingleRequests(int code) throws Exception
+	{
+		server.enqueue(new MockResponse().setResponseCode(code));
+
+		AtomicInteger sentAlone = new AtomicInteger();
+		CountDownLatch done = new CountDownLatch(2);
+		for (int i = 0; i < 2; i++)
+		{
+			batcher.submit("/event", "key" + i, "{}", () -> { sentAlone.incrementAndGet(); done.countDown(); }, unexpected());
+		}
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		assertEquals(1, server.getRequestCount());
+
+		// Batching stays off, later submissions are sent alone right away
+		batcher.submit("/event", "key2", "{}", sentAlone::incrementAndGet, unexpected());
+		assertEquals(3, sentAlone.get());
+		assertEquals(1, server.getRequestCount());
+	}
+
+	private static submissionBatcher.resultHandler unexpected()
+	{
+		return new submissionBatcher.resultHandler()
+		{
+			@Override
+			public void onResult(int code, apiResponse responseBody)
+			{
+				throw new AssertionError("unexpected result " + code);
+			}
+			@Override
+			public void onFailure()
+			{
+				throw new AssertionError("unexpected failure");
+			}
+		};
+	}
+}
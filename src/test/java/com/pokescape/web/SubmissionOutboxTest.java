@@ -0,0 +1,128 @@
+package com.pokescape.web;
+
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.SocketPolicy;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class SubmissionOutboxTest
+{
+	private static final String PAYLOAD = "{\"rsn\":\"Zezima\",\"lootName\":[\"Bones\"]}";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private final MockWebServer server = new MockWebServer();
+	// Retries would hide the dropped connection from the outbox
+	private final OkHttpClient okHttpClient = new OkHttpClient.Builder().retryOnConnectionFailure(false).build();
+	private submissionOutbox outbox;
+
+	@Before
+	public void before() throws IOException
+	{
+		server.start();
+		outbox = new submissionOutbox(folder.getRoot());
+		outbox.startUp();
+	}
+
+	@After
+	public void after() throws IOException
+	{
+		outbox.shutDown();
+		server.shutdown();
+	}
+
+	@Test
+	public void replayAfterDroppedResponseIsAcknowledgedOnce() throws Exception
+	{
+		// The server stores the first attempt but the connection drops before it answers
+		server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AFTER_REQUEST));
+		server.enqueue(new MockResponse().setResponseCode(200));
+
+		submissionOutbox.entry submission = append();
+		assertEquals(-1, send(submission));
+		outbox.release(submission);
+
+		submissionOutbox.entry replayed = replay();
+		assertNotNull(replayed);
+		assertEquals(200, send(replayed));
+		outbox.replayFinished(replayed, true);
+
+		assertEquals(2, server.getRequestCount());
+		String key = server.takeRequest().getHeader("Idempotency-Key");
+		assertEquals(submission.getKey(), key);
+		assertEquals(key, server.takeRequest().getHeader("Idempotency-Key"));
+
+		// Acknowledged submissions are never handed out again, in this session or the next
+		assertNull(replay());
+		outbox.shutDown();
+		outbox = new submissionOutbox(folder.getRoot());
+		outbox.startUp();
+		assertNull(replay());
+	}
+
+	@Test
+	public void keySurvivesRestart() throws Exception
+	{
+		submissionOutbox.entry submission = append();
+		outbox.release(submission);
+		outbox.shutDown();
+
+		outbox = new submissionOutbox(folder.getRoot());
+		outbox.startUp();
+		submissionOutbox.entry replayed = replay();
+		assertNotNull(replayed);
+		assertEquals(submission.getKey(), replayed.getKey());
+		assertEquals(PAYLOAD, replayed.getPayload());
+		assertEquals("/loot", replayed.getRoute());
+	}
+
+	private submissionOutbox.entry append() throws InterruptedException
+	{
+		BlockingQueue<submissionOutbox.entry> recorded = new LinkedBlockingQueue<>();
+		outbox.append("/loot", () -> PAYLOAD, recorded::add);
+		return recorded.poll(5, TimeUnit.SECONDS);
+	}
+
+	private submissionOutbox.entry replay() throws InterruptedException
+	{
+		BlockingQueue<submissionOutbox.entry> replayed = new LinkedBlockingQueue<>();
+		outbox.replay(replayed::add);
+		return replayed.poll(500, TimeUnit.MILLISECONDS);
+	}
+
+	// Returns the response code, or -1 if the connection failed
+	private int send(submissionOutbox.entry submission)
+	{
+		Request request = new Request.Builder()
+			.url(server.url(submission.getRoute()))
+			.header("Idempotency-Key", submission.getKey())
+			.post(RequestBody.create(MediaType.parse("application/json"), submission.getPayload()))
+			.build();
+		try (Response response = okHttpClient.newCall(request).execute())
+		{
+			return response.code();
+		}
+		catch (IOException e)
+		{
+			return -1;
+		}
+	}
+}
@@ -0,0 +1,131 @@
+package com.pokescape.web;
+
+import com.google.gson.JsonObject;
+import com.pokescape.util.allowBlockIndex;
+import com.pokescape.util.eventIndex;
+import com.pokescape.util.petIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import static net.runelite.http.api.RuneLiteAPI.GSON;
+
+// The work between startUp and having events, activities, allowblock and pets ready from the disk cache
+// Without the cache none of it is ready until /profile and /sync have both come back
+// Run with ./gradlew jmh --args='SyncCacheBenchmark'
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SyncCacheBenchmark
+{
+	private File cacheDir;
+
+	@Setup
+	public void setup() throws IOException
+	{
+		cacheDir = Files.createTempDirectory("pokescape-sync").toFile();
+		Map<String, String> sections = new LinkedHashMap<>();
+		sections.put("events", events(300).toString());
+		sections.put("activities", activities(100).toString());
+		sections.put("allowblock", allowblock(50).toString());
+		sections.put("pets", pets(60).toString());
+		JsonObject manifest = new JsonObject();
+		for (String section : sections.keySet()) manifest.addProperty(section, "v1");
+		new syncCache(cacheDir).update(sections, manifest);
+	}
+
+	@TearDown
+	public void tearDown()
+	{
+		new File(cacheDir, "sync.dat").delete();
+		cacheDir.delete();
+	}
+
+	@Benchmark
+	public Map<String, String> load()
+	{
+		return new syncCache(cacheDir).load();
+	}
+
+	@Benchmark
+	public void loadAndCompile(Blackhole blackhole)
+	{
+		Map<String, String> cached = new syncCache(cacheDir).load();
+		blackhole.consume(eventIndex.compile(cached.get("events"), "gameEvent"));
+		blackhole.consume(GSON.fromJson(cached.get("activities"), JsonObject.class));
+		blackhole.consume(allowBlockIndex.compile(cached.get("allowblock")));
+		blackhole.consume(petIndex.compile(cached.get("pets")));
+		blackhole.consume(syncCache.getManifest(cached));
+	}
+
+	static JsonObject events(int count)
+	{
+		JsonObject events = new JsonObject();
+		for (int i = 0; i < count; i++)
+		{
+			JsonObject event = new JsonObject();
+			event.addProperty("type", (i % 5 == 0) ? eventIndex.LOADED_WIDGET : eventIndex.GAME_MESSAGE);
+			event.addProperty("event", (i % 5 == 0) ? Integer.toString(100 + i) : "Your (.+) kill count is: (\\d+)" + i);
+			events.add("event" + i, event);
+		}
+		return events;
+	}
+
+	static JsonObject activities(int count)
+	{
+		JsonObject activities = new JsonObject();
+		for (int i = 0; i < count; i++)
+		{
+			JsonObject activity = new JsonObject();
+			activity.addProperty("category", "skilling");
+			activity.addProperty("animation", 800 + i);
+			activities.add("activity" + i, activity);
+		}
+		return activities;
+	}
+
+	static JsonObject allowblock(int count)
+	{
+		JsonObject allowblock = new JsonObject();
+		for (int i = 0; i < count; i++)
+		{
+			JsonObject entry = new JsonObject();
+			entry.addProperty("name", "Npc " + i);
+			entry.addProperty("type", "NPC");
+			entry.addProperty("action", (i % 2 == 0) ? "allow" : "block");
+			allowblock.add("entry" + i, entry);
+		}
+		return allowblock;
+	}
+
+	static JsonObject pets(int count)
+	{
+		JsonObject pets = new JsonObject();
+		for (int i = 0; i < count; i++)
+		{
+			JsonObject pet = new JsonObject();
+			pet.addProperty("petName", "Pet " + i);
+			pet.addProperty("petID", 12000 + i);
+			pets.add("Npc " + i, pet);
+		}
+		return pets;
+	}
+}
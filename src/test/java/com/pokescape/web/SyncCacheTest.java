@@ -0,0 +1,100 @@
+package com.pokescape.web;
+
+import com.google.gson.JsonObject;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class SyncCacheTest
+{
+	// [magic][format version][crc32][length] ahead of the gzipped bundle
+	private static final int VERSION_OFFSET = 4;
+	private static final int HEADER_SIZE = 16;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File cacheFile;
+
+	@Before
+	public void before()
+	{
+		cacheFile = new File(folder.getRoot(), "sync.dat");
+		Map<String, String> sections = Collections.singletonMap("pets", "{\"Pet snakeling\":2}");
+		JsonObject manifest = new JsonObject();
+		manifest.addProperty("pets", "v7");
+		new syncCache(folder.getRoot()).update(sections, manifest);
+	}
+
+	@Test
+	public void loadsWhatWasWritten()
+	{
+		Map<String, String> cached = new syncCache(folder.getRoot()).load();
+		assertEquals("{\"Pet snakeling\":2}", cached.get("pets"));
+		assertEquals("v7", syncCache.getManifest(cached).get("pets").getAsString());
+	}
+
+	@Test
+	public void rejectsCorruptBody() throws IOException
+	{
+		byte[] data = Files.readAllBytes(cacheFile.toPath());
+		data[data.length - 5] ^= 0x01;
+		Files.write(cacheFile.toPath(), data);
+		assertNull(new syncCache(folder.getRoot()).load());
+	}
+
+	@Test
+	public void rejectsOtherFormatVersion() throws IOException
+	{
+		byte[] data = Files.readAllBytes(cacheFile.toPath());
+		ByteBuffer.wrap(data).putInt(VERSION_OFFSET, 2);
+		Files.write(cacheFile.toPath(), data);
+		assertNull(new syncCache(folder.getRoot()).load());
+	}
+
+	@Test
+	public void rejectsOtherFiles() throws IOException
+	{
+		byte[] data = Files.readAllBytes(cacheFile.toPath());
+		data[0] ^= 0x01;
+		Files.write(cacheFile.toPath(), data);
+		assertNull(new syncCache(folder.getRoot()).load());
+	}
+
+	@Test
+	public void rejectsTruncatedFile() throws IOException
+	{
+		byte[] data = Files.readAllBytes(cacheFile.toPath());
+		Files.write(cacheFile.toPath(), Arrays.copyOf(data, HEADER_SIZE + 4));
+		assertNull(new syncCache(folder.getRoot()).load());
+	}
+
+	@Test
+	public void missingFileIsEmpty()
+	{
+		assertNull(new syncCache(new File(folder.getRoot(), "missing")).load());
+	}
+
+	@Test
+	public void laterSectionsReplaceEarlierOnes()
+	{
+		syncCache cache = new syncCache(folder.getRoot());
+		cache.load();
+		cache.update(Collections.singletonMap("events", "[]"), null);
+		Map<String, String> cached = new syncCache(folder.getRoot()).load();
+		assertEquals("{\"Pet snakeling\":2}", cached.get("pets"));
+		assertEquals("[]", cached.get("events"));
+		assertEquals("v7", syncCache.getManifest(cached).get("pets").getAsString());
+	}
+}
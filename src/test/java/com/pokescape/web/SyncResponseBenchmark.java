@@ -0,0 +1,91 @@
+package com.pokescape.web;
+
+import com.google.gson.JsonObject;
+import com.pokescape.util.allowBlockIndex;
+import com.pokescape.util.eventIndex;
+import com.pokescape.util.petIndex;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.GzipSink;
+import okio.Okio;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import static net.runelite.http.api.RuneLiteAPI.GSON;
+
+// What a /sync costs the client when its cached sections are already current, answered in full or with a 304
+// The body sizes are printed during setup
+// Run with ./gradlew jmh --args='SyncResponseBenchmark'
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SyncResponseBenchmark
+{
+	private static final MediaType JSON = MediaType.parse("application/json");
+	private final Request request = new Request.Builder().url("https://example.com/sync").build();
+	private byte[] body;
+
+	@Setup
+	public void setup() throws IOException
+	{
+		JsonObject sync = new JsonObject();
+		sync.add("events", SyncCacheBenchmark.events(300));
+		sync.add("activities", SyncCacheBenchmark.activities(100));
+		sync.add("allowblock", SyncCacheBenchmark.allowblock(50));
+		sync.add("pets", SyncCacheBenchmark.pets(60));
+		body = sync.toString().getBytes(StandardCharsets.UTF_8);
+
+		Buffer gzipped = new Buffer();
+		try (BufferedSink sink = Okio.buffer(new GzipSink(gzipped)))
+		{
+			sink.write(body);
+		}
+		System.out.println("Full /sync body: " + body.length + " bytes, " + gzipped.size() + " bytes gzipped. 304 body: 0 bytes");
+	}
+
+	@Benchmark
+	public void fullResponse(Blackhole blackhole)
+	{
+		Response response = response(200, ResponseBody.create(body, JSON));
+		apiResponse sync = apiResponse.read(response);
+		response.close();
+		blackhole.consume(eventIndex.compile(sync.getEvents(), "gameEvent"));
+		blackhole.consume(GSON.fromJson(sync.getActivities(), JsonObject.class));
+		blackhole.consume(allowBlockIndex.compile(sync.getAllowblock()));
+		blackhole.consume(petIndex.compile(sync.getPets()));
+	}
+
+	@Benchmark
+	public boolean notModified()
+	{
+		Response response = response(304, ResponseBody.create(new byte[0], null));
+		boolean notModified = response.code() == 304;
+		response.close();
+		return notModified;
+	}
+
+	private Response response(int code, ResponseBody responseBody)
+	{
+		return new Response.Builder().request(request).protocol(Protocol.HTTP_1_1).code(code).message("").body(responseBody).build();
+	}
+}
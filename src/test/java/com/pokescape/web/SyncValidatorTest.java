@@ -0,0 +1,54 @@
+package com.pokescape.web;
+
+import com.google.gson.JsonObject;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+public class SyncValidatorTest
+{
+	@Test
+	public void namesTheHeldVersionOfEachRequestedSection()
+	{
+		JsonObject held = manifest();
+		assertEquals("\"activities=12,allowblock=3,events=40,pets=v7\"", PokescapeClient.syncValidator(held, null));
+		assertEquals("\"events=40,pets=v7\"", PokescapeClient.syncValidator(held, Arrays.asList("pets", "events")));
+	}
+
+	@Test
+	public void missingVersionsSendNoValidator()
+	{
+		assertNull(PokescapeClient.syncValidator(null, null));
+		JsonObject held = manifest();
+		held.remove("events");
+		assertNull(PokescapeClient.syncValidator(held, null));
+		assertEquals("\"pets=v7\"", PokescapeClient.syncValidator(held, Collections.singletonList("pets")));
+		held.add("pets", new JsonObject());
+		assertNull(PokescapeClient.syncValidator(held, Collections.singletonList("pets")));
+		held.addProperty("pets", "a,b");
+		assertNull(PokescapeClient.syncValidator(held, Collections.singletonList("pets")));
+	}
+
+	@Test
+	public void validatorChangesWithAnySectionVersion()
+	{
+		JsonObject held = manifest();
+		String before = PokescapeClient.syncValidator(held, null);
+		held.addProperty("allowblock", 4);
+		assertNotEquals(before, PokescapeClient.syncValidator(held, null));
+	}
+
+	private static JsonObject manifest()
+	{
+		JsonObject manifest = new JsonObject();
+		manifest.addProperty("pets", "v7");
+		manifest.addProperty("events", 40);
+		manifest.addProperty("activities", 12);
+		manifest.addProperty("allowblock", 3);
+		return manifest;
+	}
+}